@@ -0,0 +1,142 @@
+package org.example.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.example.util.AdaptiveLimiter;
+import org.example.util.OverloadedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ограничивает количество одновременных обращений запросов к {@code CarStorage}, {@code OrderStorage}
+ * и {@code UserStorage}.
+ * <p>
+ * Запросы на чтение (GET, HEAD, OPTIONS) и изменяющие запросы получают отдельные {@link AdaptiveLimiter}, поэтому
+ * поток чтений не вытесняет оформление заказов и наоборот. Обращение сверх предела не встает в очередь перед
+ * {@code JdbcTemplate}, а сразу получает {@link OverloadedException} (ответ 503 с {@code Retry-After}). Вызовы
+ * вне HTTP-запроса (фоновые потоки, инвалидация кэшей) не ограничиваются.
+ * </p>
+ * <p>
+ * Разрешение занимается не при входе в хранилище, а при первом запросе соединения ({@link #admitPending()},
+ * вызывается {@code ReplicaRoutingDataSource}), и освобождается при выходе из метода хранилища. Поэтому ответы
+ * из кэша и ожидание чужой загрузки не занимают разрешений и не занижают среднюю задержку. Выгрузка
+ * {@code streamAll} не ограничивается: она держит соединение со скоростью клиента и заняла бы разрешение
+ * чтения на все время выгрузки; число одновременных выгрузок ограничено пулом соединений.
+ * </p>
+ */
+@Aspect
+public class AdmissionAspect {
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final ThreadLocal<Admission> CURRENT = new ThreadLocal<>();
+
+    private final AdaptiveLimiter readLimiter;
+    private final AdaptiveLimiter writeLimiter;
+    private final long retryAfterSeconds;
+
+    public AdmissionAspect(AdaptiveLimiter readLimiter, AdaptiveLimiter writeLimiter, long retryAfterSeconds) {
+        this.readLimiter = readLimiter;
+        this.writeLimiter = writeLimiter;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Around("(execution(public * org.example.repository.CarStorage.*(..))"
+            + " || execution(public * org.example.repository.OrderStorage.*(..))"
+            + " || execution(public * org.example.repository.UserStorage.*(..)))"
+            + " && !execution(* *.etag()) && !execution(* *.invalidateCache()) && !execution(* *.streamAll(..))")
+    public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (CURRENT.get() != null
+            || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return joinPoint.proceed();
+        }
+        boolean read = SAFE_METHODS.contains(attributes.getRequest().getMethod());
+        Admission admission = new Admission(read ? readLimiter : writeLimiter, read ? "read" : "write");
+        CURRENT.set(admission);
+        try {
+            Object result = joinPoint.proceed();
+            admission.release();
+            return result;
+        } catch (CannotGetJdbcConnectionException | QueryTimeoutException e) {
+            admission.drop();
+            throw e;
+        } catch (Throwable e) {
+            admission.ignore();
+            throw e;
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Занимает разрешение для текущего вызова хранилища, если он еще не занял его. Вызывается перед выдачей
+     * соединения; вне вызова хранилища ничего не делает.
+     *
+     * @throws OverloadedException если предел одновременных обращений исчерпан.
+     */
+    public static void admitPending() {
+        Admission admission = CURRENT.get();
+        if (admission != null) {
+            admission.acquire();
+        }
+    }
+
+    /**
+     * Возвращает состояние ограничителей чтения и записи.
+     *
+     * @return предел и счетчики каждого ограничителя.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("read", readLimiter.stats());
+        result.put("write", writeLimiter.stats());
+        return result;
+    }
+
+    private final class Admission {
+        private final AdaptiveLimiter limiter;
+        private final String kind;
+        private boolean acquired;
+        private long started;
+
+        private Admission(AdaptiveLimiter limiter, String kind) {
+            this.limiter = limiter;
+            this.kind = kind;
+        }
+
+        private void acquire() {
+            if (acquired) {
+                return;
+            }
+            if (!limiter.tryAcquire()) {
+                throw new OverloadedException("Too many concurrent " + kind + " requests, limit " + limiter.getLimit(),
+                        retryAfterSeconds);
+            }
+            acquired = true;
+            started = System.nanoTime();
+        }
+
+        private void release() {
+            if (acquired) {
+                limiter.release(System.nanoTime() - started);
+            }
+        }
+
+        private void drop() {
+            if (acquired) {
+                limiter.drop();
+            }
+        }
+
+        private void ignore() {
+            if (acquired) {
+                limiter.ignore();
+            }
+        }
+    }
+}
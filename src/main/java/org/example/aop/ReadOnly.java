@@ -0,0 +1,19 @@
+package org.example.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает метод сервиса, который только читает данные и может выполняться на реплике базы данных.
+ * <p>
+ * Маршрутизацию выполняет {@link ReplicaRoutingAspect}; методы без аннотации всегда используют основную базу.
+ * </p>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnly {
+}
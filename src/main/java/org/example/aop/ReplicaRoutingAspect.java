@@ -0,0 +1,80 @@
+package org.example.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.example.config.ReplicaRoutingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Set;
+
+/**
+ * Направляет методы, помеченные {@link ReadOnly}, на реплики с гарантией чтения собственных записей.
+ * <p>
+ * Запрос, изменяющий данные (любой метод HTTP, кроме GET, HEAD и OPTIONS), получает cookie {@link #STICKY_COOKIE}
+ * со временем окончания окна привязки. Пока окно не истекло, чтения этого клиента выполняются на основной базе,
+ * поэтому клиент не видит устаревших данных из отстающей реплики.
+ * </p>
+ */
+@Aspect
+public class ReplicaRoutingAspect implements HandlerInterceptor {
+    static final String STICKY_COOKIE = "db-primary-until";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final long stickyMillis;
+
+    public ReplicaRoutingAspect(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    @Around("@annotation(org.example.aop.ReadOnly)")
+    public Object routeRead(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReplicaRoutingDataSource.setReadOnly(!mustReadPrimary());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaRoutingDataSource.setReadOnly(previous);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(STICKY_COOKIE, String.valueOf(System.currentTimeMillis() + stickyMillis));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stickyMillis + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        return true;
+    }
+
+    private boolean mustReadPrimary() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (!SAFE_METHODS.contains(request.getMethod())) {
+            return true;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (STICKY_COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,394 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Getter;
+import org.example.util.NotFoundException;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Ограниченный кэш сущностей по идентификатору, работающий по схеме read-through.
+ * <p>
+ * Построен на Caffeine: вытеснение учитывает частоту обращений (W-TinyLFU), поэтому популярные записи
+ * не вытесняются разовыми чтениями. Размер ограничен суммарным весом записей, время жизни записи — сроком
+ * с момента загрузки. Отсутствующие сущности не кэшируются: исключение загрузчика передается вызывающему коду.
+ * </p>
+ * <p>
+ * Возвращаемые объекты общие для всех вызывающих и не должны изменяться. Загрузчики должны читать с основной
+ * базы даже внутри методов, направленных на реплики: строка из отстающей реплики осталась бы в кэше на весь срок
+ * жизни записи и отдавалась бы всем клиентам, в том числе только что изменившим ее.
+ * </p>
+ * <p>
+ * Методы {@code put} и {@code invalidate} кроме локального изменения публикуют сообщение через
+ * {@link InvalidationPublisher}, чтобы другие узлы удалили у себя ту же запись.
+ * </p>
+ * <p>
+ * Любое изменение, локальное или полученное с другого узла, увеличивает версию кэша. Версия служит
+ * основой тега {@link #etag()} для условных GET-запросов: пока таблица не менялась, тег не меняется.
+ * Чтобы тег не менялся при повторном запуске узла с нулевой версией, в него входит время запуска кэша.
+ * </p>
+ * <p>
+ * После вызова {@link #trackIds(IdSet.IdSource)} кэш отвечает на запросы отсутствующих сущностей без обращения
+ * к базе данных: по битовой карте существующих идентификаторов и по кратковременному кэшу промахов
+ * ({@link #NEGATIVE_TTL}), который покрывает удаленные на других узлах строки. Карта строится в фоне
+ * ({@link RefreshScheduler}); пока она не построена, отсутствующие сущности ищутся в базе данных. Идентификаторы
+ * выше отметки последнего построения ({@link IdSet}) всегда ищутся в базе данных и не попадают в кэш промахов:
+ * такие строки могли быть вставлены на другом узле или в обход приложения.
+ * </p>
+ *
+ * @param <V> тип сущности.
+ */
+public class EntityCache<V> implements InvalidationTarget, Refreshable {
+    static final Duration NEGATIVE_TTL = Duration.ofSeconds(5);
+    private static final int MAX_NEGATIVE = 100_000;
+
+    @Getter
+    private final String name;
+    private final Cache<Integer, V> cache;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final long settleNanos;
+    private volatile long changedAt = System.nanoTime();
+    private final Cache<Integer, Boolean> absent = Caffeine.newBuilder()
+            .maximumSize(MAX_NEGATIVE)
+            .expireAfterWrite(NEGATIVE_TTL)
+            .build();
+    private final LongAdder rejected = new LongAdder();
+    private volatile IdSet knownIds;
+    private volatile InvalidationPublisher publisher = InvalidationPublisher.LOCAL;
+
+    /**
+     * Создает кэш.
+     *
+     * @param name             имя кэша в статистике.
+     * @param maximumWeight    максимальный суммарный вес записей.
+     * @param weigher          функция оценки веса записи, например приблизительного размера в байтах.
+     * @param expireAfterWrite время жизни записи с момента загрузки.
+     */
+    public EntityCache(String name, long maximumWeight, Weigher<Integer, V> weigher, Duration expireAfterWrite) {
+        this(name, maximumWeight, weigher, expireAfterWrite, Duration.ZERO);
+    }
+
+    /**
+     * Создает кэш с задержкой выдачи тега после изменения.
+     * <p>
+     * Чтения могут выполняться на реплике, которая еще не получила изменение. Пока с последнего изменения
+     * не прошло {@code etagSettle}, {@link #etag()} возвращает {@code null}, чтобы устаревший ответ реплики
+     * не был закреплен у клиента новым тегом.
+     * </p>
+     *
+     * @param name             имя кэша в статистике.
+     * @param maximumWeight    максимальный суммарный вес записей.
+     * @param weigher          функция оценки веса записи, например приблизительного размера в байтах.
+     * @param expireAfterWrite время жизни записи с момента загрузки.
+     * @param etagSettle       время после изменения, в течение которого тег не выдается.
+     */
+    public EntityCache(String name, long maximumWeight, Weigher<Integer, V> weigher, Duration expireAfterWrite,
+                       Duration etagSettle) {
+        this.name = name;
+        this.settleNanos = etagSettle.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(weigher)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Возвращает сущность из кэша или загружает ее и сохраняет в кэш.
+     * <p>
+     * Одновременные обращения к отсутствующему ключу выполняют загрузку один раз.
+     * </p>
+     *
+     * @param id     идентификатор сущности.
+     * @param loader загрузчик сущности из базы данных.
+     * @return сущность.
+     */
+    public V get(int id, IntFunction<V> loader) {
+        IdSet known = knownIds;
+        if (known != null && (absent.getIfPresent(id) != null || !known.mightContain(id))) {
+            rejected.increment();
+            throw new NotFoundException(StringUtils.capitalize(name) + " with id " + id + " not found");
+        }
+        try {
+            return cache.get(id, key -> loader.apply(key));
+        } catch (NotFoundException e) {
+            if (known != null && known.isSettled(id)) {
+                absent.put(id, Boolean.TRUE);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает найденные сущности из кэша, а отсутствующие в кэше загружает одним обращением.
+     * <p>
+     * Заведомо отсутствующие идентификаторы отбрасываются до загрузки так же, как в {@link #get(int, IntFunction)}.
+     * Загрузчик получает только идентификаторы, которых нет в кэше, и возвращает найденные сущности;
+     * не возвращенные идентификаторы считаются отсутствующими.
+     * </p>
+     * <p>
+     * В отличие от {@link #get(int, IntFunction)}, групповая загрузка не блокирует ключи, и инвалидация строки
+     * во время загрузки не помешала бы сохранить прочитанное до нее значение на весь срок жизни записи. Поэтому
+     * перед загрузкой запоминается счетчик инвалидаций, и если он изменился, загруженные записи удаляются из кэша
+     * и будут перечитаны при следующем обращении.
+     * </p>
+     *
+     * @param ids    идентификаторы сущностей.
+     * @param loader загрузчик группы сущностей из базы данных.
+     * @return найденные сущности по идентификатору.
+     */
+    public Map<Integer, V> getAll(Collection<Integer> ids, Function<List<Integer>, Map<Integer, V>> loader) {
+        IdSet known = knownIds;
+        List<Integer> candidates = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            if (known != null && (absent.getIfPresent(id) != null || !known.mightContain(id))) {
+                rejected.increment();
+            } else {
+                candidates.add(id);
+            }
+        }
+        Map<Integer, V> present = cache.getAllPresent(candidates);
+        List<Integer> missing = candidates.stream().filter(id -> !present.containsKey(id)).distinct().toList();
+        Map<Integer, V> loaded = missing.isEmpty() ? Map.of() : load(missing, loader);
+        Map<Integer, V> found = new LinkedHashMap<>();
+        for (Integer id : candidates) {
+            V value = present.containsKey(id) ? present.get(id) : loaded.get(id);
+            if (value != null) {
+                found.put(id, value);
+            }
+        }
+        if (known != null) {
+            candidates.stream().filter(id -> !found.containsKey(id) && known.isSettled(id))
+                    .forEach(id -> absent.put(id, Boolean.TRUE));
+        }
+        return found;
+    }
+
+    /**
+     * Включает проверку существования идентификаторов перед загрузкой.
+     * <p>
+     * Загрузчик {@link #get(int, IntFunction)} должен сообщать об отсутствии сущности исключением
+     * {@link NotFoundException}, а хранилище — вызывать {@link #created(int)} и {@link #removed(int)}
+     * при вставке и удалении строк.
+     * </p>
+     *
+     * @param source источник всех существующих идентификаторов таблицы.
+     */
+    public void trackIds(IdSet.IdSource source) {
+        knownIds = new IdSet(source);
+    }
+
+    @Override
+    public boolean isReady() {
+        IdSet known = knownIds;
+        return known == null || known.isReady();
+    }
+
+    /**
+     * Строит заново карту существующих идентификаторов, если проверка существования включена.
+     */
+    @Override
+    public void refresh() {
+        IdSet known = knownIds;
+        if (known != null) {
+            known.refresh();
+        }
+    }
+
+    /**
+     * Регистрирует вставленную сущность: ее идентификатор становится известным на этом и других узлах.
+     *
+     * @param id идентификатор новой сущности.
+     */
+    public void created(int id) {
+        markExisting(List.of(id));
+        invalidate(id);
+    }
+
+    /**
+     * Регистрирует группу вставленных сущностей.
+     *
+     * @param ids идентификаторы новых сущностей.
+     */
+    public void createdAll(Collection<Integer> ids) {
+        markExisting(ids);
+        invalidateAll(ids);
+    }
+
+    /**
+     * Регистрирует удаление сущности: запись удаляется из кэша, а идентификатор — из карты существующих.
+     *
+     * @param id идентификатор удаленной сущности.
+     */
+    public void removed(int id) {
+        IdSet known = knownIds;
+        if (known != null) {
+            known.remove(id);
+        }
+        invalidate(id);
+    }
+
+    /**
+     * Заменяет значение в кэше актуальной версией сущности, например прочитанной из {@code RETURNING}.
+     *
+     * @param id    идентификатор сущности.
+     * @param value актуальное значение.
+     */
+    public void put(int id, V value) {
+        generation.incrementAndGet();
+        cache.put(id, value);
+        changed();
+        publisher.publish(name, List.of(id));
+    }
+
+    /**
+     * Удаляет сущность из кэша после ее изменения или удаления.
+     *
+     * @param id идентификатор сущности.
+     */
+    public void invalidate(int id) {
+        generation.incrementAndGet();
+        cache.invalidate(id);
+        changed();
+        publisher.publish(name, List.of(id));
+    }
+
+    /**
+     * Удаляет из кэша группу сущностей.
+     *
+     * @param ids идентификаторы сущностей.
+     */
+    public void invalidateAll(Collection<Integer> ids) {
+        if (!ids.isEmpty()) {
+            generation.incrementAndGet();
+            cache.invalidateAll(ids);
+            changed();
+            publisher.publish(name, ids);
+        }
+    }
+
+    /**
+     * Очищает кэш, например после массовой загрузки таблицы.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        resetIds();
+        changed();
+        publisher.publish(name, null);
+    }
+
+    @Override
+    public void evict(Collection<Integer> ids) {
+        generation.incrementAndGet();
+        cache.invalidateAll(ids);
+        markExisting(ids);
+        changed();
+    }
+
+    @Override
+    public void evictAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        resetIds();
+        changed();
+    }
+
+    /**
+     * Возвращает тег текущей версии данных для заголовка {@code ETag}.
+     *
+     * @return тег или {@code null}, если данные изменились совсем недавно и ответ нельзя пометить тегом.
+     */
+    public String etag() {
+        long current = version.get();
+        if (System.nanoTime() - changedAt < settleNanos) {
+            return null;
+        }
+        return name + "-" + epoch + "-" + current;
+    }
+
+    /**
+     * Загружает группу сущностей и кэширует ее, если за время загрузки не было инвалидаций. Счетчик проверяется
+     * после сохранения: инвалидация, успевшая увеличить его до проверки, удалит свои записи из кэша здесь,
+     * а более поздняя — сама.
+     */
+    private Map<Integer, V> load(List<Integer> ids, Function<List<Integer>, Map<Integer, V>> loader) {
+        long started = generation.get();
+        Map<Integer, V> loaded = loader.apply(ids);
+        cache.putAll(loaded);
+        if (generation.get() != started) {
+            cache.invalidateAll(loaded.keySet());
+        }
+        return loaded;
+    }
+
+    private void markExisting(Collection<Integer> created) {
+        IdSet known = knownIds;
+        if (known != null) {
+            created.forEach(known::add);
+            absent.invalidateAll(created);
+        }
+    }
+
+    private void resetIds() {
+        IdSet known = knownIds;
+        if (known != null) {
+            known.reset();
+            absent.invalidateAll();
+        }
+    }
+
+    private void changed() {
+        version.incrementAndGet();
+        changedAt = System.nanoTime();
+    }
+
+    @Override
+    public void setPublisher(InvalidationPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * Возвращает статистику кэша.
+     *
+     * @return размер, вес, доля попаданий, количество вытеснений и среднее время загрузки.
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        cache.policy().eviction().map(Policy.Eviction::weightedSize)
+                .ifPresent(weight -> weight.ifPresent(value -> result.put("weight", value)));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("evictionWeight", stats.evictionWeight());
+        result.put("loadFailures", stats.loadFailureCount());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        IdSet known = knownIds;
+        if (known != null) {
+            result.put("knownIds", known.isReady() ? known.cardinality() : null);
+            result.put("knownAbsent", absent.estimatedSize());
+            result.put("rejected", rejected.sum());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.cache;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Битовая карта существующих идентификаторов таблицы.
+ * <p>
+ * Идентификаторы выдаются последовательностью, поэтому карта плотная: миллион строк занимает около 125 КБ.
+ * Карта строится из базы данных в фоне ({@link RefreshScheduler}) при запуске, после каждого сброса и периодически,
+ * а между построениями поддерживается вызовами {@link #add(int)} и {@link #remove(int)}. Периодическое построение
+ * добавляет строки, вставленные в обход приложения. Пока карта не построена, любой идентификатор считается
+ * возможно существующим.
+ * </p>
+ * <p>
+ * Ошибки допускаются только в одну сторону: карта может считать существующим удаленный идентификатор
+ * (тогда запрос просто дойдет до базы данных), но не наоборот. Строки, вставленные после построения на других
+ * узлах или другими программами, доходят до карты с задержкой (через {@code NOTIFY}, который может потеряться,
+ * или при следующем построении), поэтому карта отвечает «нет» только для идентификаторов не больше отметки
+ * {@code settled}: наибольшего идентификатора последнего построения за вычетом {@link #RECENT_IDS}.
+ * Идентификаторы выдаются последовательностью, так что новые строки получают идентификаторы выше отметки,
+ * а запас покрывает долгие транзакции и кэш последовательности в сессиях, которые фиксируют меньшие
+ * идентификаторы позже больших. Добавления во время перестроения попадают и в старую, и в новую карту,
+ * а удаления с других узлов не снимают бит.
+ * </p>
+ */
+public class IdSet {
+    static final int RECENT_IDS = 1_000;
+
+    private final IdSource source;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
+    private BitSet ids = new BitSet();
+    private BitSet building;
+    private volatile boolean ready;
+    private volatile int settled;
+
+    /**
+     * Источник всех существующих идентификаторов таблицы.
+     */
+    @FunctionalInterface
+    public interface IdSource {
+        /**
+         * Передает потребителю каждый существующий идентификатор.
+         *
+         * @param consumer потребитель идентификаторов.
+         */
+        void forEach(IntConsumer consumer);
+    }
+
+    IdSet(IdSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Проверяет, может ли существовать строка с указанным идентификатором.
+     *
+     * @param id идентификатор.
+     * @return {@code false}, только если строки с этим идентификатором точно нет.
+     */
+    boolean mightContain(int id) {
+        if (id <= 0) {
+            return false;
+        }
+        if (!isSettled(id)) {
+            return true;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(int id) {
+        if (id <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.set(id);
+            if (building != null) {
+                building.set(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int id) {
+        if (id <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.clear(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Помечает карту устаревшей; до следующего построения проверка существования не выполняется.
+     */
+    void reset() {
+        generation.incrementAndGet();
+        ready = false;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Проверяет, отвечает ли карта за отсутствие идентификатора.
+     *
+     * @param id идентификатор.
+     * @return {@code true}, если карта построена и идентификатор не больше отметки {@code settled}.
+     */
+    boolean isSettled(int id) {
+        return ready && id <= settled;
+    }
+
+    long cardinality() {
+        lock.readLock().lock();
+        try {
+            return ids.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Строит карту заново. Пока идет построение, проверки выполняются по предыдущей карте.
+     *
+     * @throws RuntimeException если идентификаторы не удалось прочитать.
+     */
+    void refresh() {
+        rebuildLock.lock();
+        try {
+            long started = generation.get();
+            BitSet fresh = new BitSet();
+            lock.writeLock().lock();
+            try {
+                building = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            source.forEach(id -> {
+                lock.writeLock().lock();
+                try {
+                    fresh.set(id);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            lock.writeLock().lock();
+            try {
+                ids = fresh;
+                settled = Math.max(0, fresh.length() - 1 - RECENT_IDS);
+                ready = generation.get() == started;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            rebuildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.cache;
+
+import java.util.Collection;
+
+/**
+ * Получатель сообщений об инвалидации кэшей для передачи другим узлам приложения.
+ */
+@FunctionalInterface
+public interface InvalidationPublisher {
+    /**
+     * Публикатор по умолчанию: инвалидация остается локальной.
+     */
+    InvalidationPublisher LOCAL = (cache, ids) -> {
+    };
+
+    /**
+     * Сообщает другим узлам об устаревших записях кэша.
+     *
+     * @param cache имя кэша.
+     * @param ids   идентификаторы устаревших записей или {@code null}, если устарел весь кэш.
+     */
+    void publish(String cache, Collection<Integer> ids);
+}
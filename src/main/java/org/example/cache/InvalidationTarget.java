@@ -0,0 +1,36 @@
+package org.example.cache;
+
+import java.util.Collection;
+
+/**
+ * Кэш, который может быть инвалидирован сообщением с другого узла приложения.
+ * <p>
+ * Методы {@code evict} удаляют записи только на текущем узле и ничего не публикуют.
+ * </p>
+ */
+public interface InvalidationTarget {
+
+    /**
+     * @return имя кэша в сообщениях об инвалидации.
+     */
+    String getName();
+
+    /**
+     * Удаляет записи на текущем узле.
+     *
+     * @param ids идентификаторы записей.
+     */
+    void evict(Collection<Integer> ids);
+
+    /**
+     * Очищает кэш на текущем узле.
+     */
+    void evictAll();
+
+    /**
+     * Подключает публикацию локальных инвалидаций другим узлам.
+     *
+     * @param publisher публикатор сообщений.
+     */
+    void setPublisher(InvalidationPublisher publisher);
+}
@@ -0,0 +1,225 @@
+package org.example.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Рассылает инвалидации кэшей между узлами приложения через PostgreSQL {@code LISTEN/NOTIFY}.
+ * <p>
+ * Локальная инвалидация публикуется вызовом {@code pg_notify} в канал {@link #CHANNEL} сообщением вида
+ * {@code <узел> <кэш> <id,id,...>} или {@code <узел> <кэш> *} для очистки всего кэша. Длинные списки
+ * идентификаторов делятся на несколько сообщений, чтобы не превысить ограничение размера сообщения.
+ * </p>
+ * <p>
+ * Каждый узел держит отдельное соединение, подписанное на канал, и удаляет у себя указанные записи.
+ * Сообщения собственного узла пропускаются: запись уже удалена локально. Если соединение потеряно,
+ * сообщения за время разрыва недоступны, поэтому после переподключения все кэши очищаются полностью.
+ * </p>
+ */
+@Slf4j
+public class PgInvalidationBus implements InvalidationPublisher, Closeable {
+    public static final String CHANNEL = "car_shop_invalidation";
+    private static final String ALL = "*";
+    private static final String EXTERNAL_NODE = "external";
+    private static final int MAX_PAYLOAD = 7_000;
+    private static final int POLL_MILLIS = 500;
+    private static final long RECONNECT_MILLIS = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConnectionFactory listenerConnections;
+    private final Map<String, List<InvalidationTarget>> targets = new LinkedHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final Thread listener;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishFailures = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private volatile boolean running = true;
+    private volatile boolean connected;
+
+    /**
+     * Источник выделенного соединения для подписки на канал.
+     * <p>
+     * Соединение не берется из пула: оно живет все время работы узла и должно оставаться в режиме автофиксации.
+     * </p>
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection getConnection() throws SQLException;
+    }
+
+    /**
+     * Создает шину, подключает ее к кэшам и запускает поток подписки.
+     *
+     * @param jdbcTemplate        шаблон для публикации сообщений в основную базу.
+     * @param listenerConnections источник соединения для подписки на канал.
+     * @param targets             кэши, участвующие в инвалидации; у нескольких кэшей одной таблицы может быть одно имя.
+     */
+    public PgInvalidationBus(JdbcTemplate jdbcTemplate, ConnectionFactory listenerConnections,
+                             Collection<? extends InvalidationTarget> targets) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listenerConnections = listenerConnections;
+        targets.forEach(target -> {
+            this.targets.computeIfAbsent(target.getName(), name -> new ArrayList<>()).add(target);
+            target.setPublisher(this);
+        });
+        listener = new Thread(this::listen, "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void publish(String cache, Collection<Integer> ids) {
+        String prefix = nodeId + " " + cache + " ";
+        try {
+            if (ids == null) {
+                notify(prefix + ALL);
+                return;
+            }
+            StringBuilder payload = new StringBuilder(prefix);
+            for (Integer id : ids) {
+                if (payload.length() > MAX_PAYLOAD) {
+                    notify(payload.toString());
+                    payload.setLength(0);
+                    payload.append(prefix);
+                }
+                if (payload.length() > prefix.length()) {
+                    payload.append(',');
+                }
+                payload.append(id);
+            }
+            if (payload.length() > prefix.length()) {
+                notify(payload.toString());
+            }
+        } catch (RuntimeException e) {
+            publishFailures.increment();
+            log.warn("Failed to publish invalidation of cache {}, other nodes rely on expiration: {}",
+                    cache, e.getMessage());
+        }
+    }
+
+    /**
+     * Сообщает всем узлам о полной инвалидации кэша без создания шины, например из консольной утилиты,
+     * изменившей таблицу в обход приложения.
+     *
+     * @param jdbcTemplate шаблон для публикации сообщения в основную базу.
+     * @param cache        имя кэша.
+     */
+    public static void publishAll(JdbcTemplate jdbcTemplate, String cache) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null, CHANNEL, EXTERNAL_NODE + " " + cache + " " + ALL);
+    }
+
+    /**
+     * Возвращает состояние шины.
+     *
+     * @return идентификатор узла, наличие подписки и счетчики отправленных и полученных сообщений.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("node", nodeId);
+        result.put("connected", connected);
+        result.put("caches", targets.keySet());
+        result.put("published", published.sum());
+        result.put("publishFailures", publishFailures.sum());
+        result.put("received", received.sum());
+        result.put("reconnects", reconnects.sum());
+        result.put("flushes", flushes.sum());
+        return result;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        listener.interrupt();
+    }
+
+    private void notify(String payload) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null, CHANNEL, payload);
+        published.increment();
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = listenerConnections.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                flushAll();
+                connected = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                if (connected) {
+                    log.warn("Cache invalidation listener lost its connection, flushing caches: {}", e.getMessage());
+                }
+                connected = false;
+                reconnects.increment();
+                flushAll();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        connected = false;
+    }
+
+    private void handle(String payload) {
+        received.increment();
+        String[] parts = payload.split(" ", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        List<InvalidationTarget> cacheTargets = targets.get(parts[1]);
+        if (cacheTargets == null) {
+            return;
+        }
+        if (ALL.equals(parts[2])) {
+            cacheTargets.forEach(InvalidationTarget::evictAll);
+            return;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (String id : parts[2].split(",")) {
+            try {
+                ids.add(Integer.parseInt(id));
+            } catch (NumberFormatException e) {
+                cacheTargets.forEach(InvalidationTarget::evictAll);
+                return;
+            }
+        }
+        cacheTargets.forEach(target -> target.evict(ids));
+    }
+
+    private void flushAll() {
+        flushes.increment();
+        targets.values().forEach(cacheTargets -> cacheTargets.forEach(InvalidationTarget::evictAll));
+    }
+}
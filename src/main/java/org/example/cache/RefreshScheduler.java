@@ -0,0 +1,82 @@
+package org.example.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Строит структуры {@link Refreshable} в фоновом потоке при запуске и поддерживает их актуальными.
+ * <p>
+ * Каждые {@code checkInterval} строятся структуры, которые еще не построены или были сброшены, например после
+ * полной инвалидации. Каждые {@code interval} все структуры перестраиваются целиком: так в них попадают строки,
+ * добавленные в обход приложения (ручной SQL, другой сервис), о которых не пришло сообщение об инвалидации.
+ * Все построения выполняются одним потоком по очереди, поэтому полное чтение таблиц не конкурирует между собой
+ * и не занимает потоки запросов. После неудачного построения следующая попытка выполняется не раньше чем через {@link #FAILURE_BACKOFF}.
+ * </p>
+ */
+@Slf4j
+public class RefreshScheduler implements Closeable {
+    static final Duration FAILURE_BACKOFF = Duration.ofSeconds(5);
+
+    private final List<Refreshable> targets;
+    private final Map<Refreshable, Long> retryAt = new IdentityHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Создает планировщик и запускает построение.
+     *
+     * @param targets       структуры, которые нужно поддерживать.
+     * @param interval      интервал полного перестроения.
+     * @param checkInterval интервал проверки непостроенных структур.
+     */
+    public RefreshScheduler(Collection<? extends Refreshable> targets, Duration interval, Duration checkInterval) {
+        this.targets = List.copyOf(targets);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::rebuildPending, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::rebuildAll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void rebuildPending() {
+        for (Refreshable target : targets) {
+            if (!target.isReady()) {
+                rebuild(target);
+            }
+        }
+    }
+
+    private void rebuildAll() {
+        targets.forEach(this::rebuild);
+    }
+
+    private void rebuild(Refreshable target) {
+        Long retry = retryAt.get(target);
+        if (retry != null && System.nanoTime() - retry < 0) {
+            return;
+        }
+        try {
+            target.refresh();
+            retryAt.remove(target);
+        } catch (RuntimeException e) {
+            retryAt.put(target, System.nanoTime() + FAILURE_BACKOFF.toNanos());
+            log.warn("Failed to build {} from the database, the database is queried directly for now: {}",
+                    target.getName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.cache;
+
+/**
+ * Структура в памяти, которая строится из базы данных целиком, например карта существующих идентификаторов
+ * или индекс атрибутов.
+ * <p>
+ * Структура строится и перестраивается в фоне {@link RefreshScheduler}, а не в потоке запроса. Пока она не построена
+ * ({@link #isReady()} возвращает {@code false}), ее пользователи обращаются к базе данных напрямую.
+ * </p>
+ */
+public interface Refreshable {
+
+    /**
+     * @return имя структуры в журнале.
+     */
+    String getName();
+
+    /**
+     * @return {@code true}, если структура построена и не сброшена.
+     */
+    boolean isReady();
+
+    /**
+     * Строит структуру заново из базы данных. Пока идет построение, используется предыдущая версия.
+     *
+     * @throws RuntimeException если прочитать данные не удалось; предыдущая версия при этом сохраняется.
+     */
+    void refresh();
+}
@@ -0,0 +1,80 @@
+package org.example.cli;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.cache.PgInvalidationBus;
+import org.example.repository.CopyStorage;
+import org.example.repository.CopyTable;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Консольная точка входа для массовой выгрузки и загрузки таблиц через {@link CopyStorage}.
+ * <p>
+ * Параметры подключения берутся из {@code application.yaml}. Использование:
+ * <pre>
+ *     java -cp ... org.example.cli.CopyTool export car car.csv
+ *     java -cp ... org.example.cli.CopyTool import car car.csv
+ * </pre>
+ * Вместо имени файла можно указать {@code -} для стандартного вывода или ввода. После загрузки работающие узлы
+ * приложения получают через {@link PgInvalidationBus} сообщение о полной инвалидации кэша таблицы.
+ * </p>
+ */
+@Slf4j
+public final class CopyTool {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CopyTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: CopyTool export|import <car|orders|user|user_roles> <file|->");
+            System.exit(2);
+        }
+        CopyTable table = CopyTable.of(args[1]);
+        SingleConnectionDataSource dataSource = dataSource();
+        try {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            CopyStorage storage = new CopyStorage(jdbcTemplate);
+            switch (args[0]) {
+                case "export" -> {
+                    try (OutputStream out = "-".equals(args[2]) ? new BufferedOutputStream(System.out, BUFFER_SIZE)
+                            : new BufferedOutputStream(Files.newOutputStream(Path.of(args[2])), BUFFER_SIZE)) {
+                        storage.exportTable(table, out);
+                    }
+                }
+                case "import" -> {
+                    try (InputStream in = "-".equals(args[2]) ? new BufferedInputStream(System.in, BUFFER_SIZE)
+                            : new BufferedInputStream(Files.newInputStream(Path.of(args[2])), BUFFER_SIZE)) {
+                        storage.importTable(table, in);
+                    }
+                    PgInvalidationBus.publishAll(jdbcTemplate, table.getCache());
+                }
+                default -> {
+                    System.err.println("Unexpected mode: " + args[0]);
+                    System.exit(2);
+                }
+            }
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    private static SingleConnectionDataSource dataSource() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yaml"));
+        Properties properties = Objects.requireNonNull(yaml.getObject());
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(properties.getProperty("database.url"),
+                properties.getProperty("database.username"), properties.getProperty("database.password"), true);
+        dataSource.setDriverClassName(properties.getProperty("database.driver-class-name"));
+        return dataSource;
+    }
+}
@@ -2,16 +2,37 @@ package org.example.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
 import liquibase.integration.spring.SpringLiquibase;
+import org.example.aop.AdmissionAspect;
+import org.example.aop.ReplicaRoutingAspect;
+import org.example.cache.EntityCache;
+import org.example.cache.PgInvalidationBus;
+import org.example.cache.RefreshScheduler;
+import org.example.model.Car;
+import org.example.model.Order;
+import org.example.model.User;
+import org.example.repository.CarIndex;
+import org.example.repository.RoleStorage;
 import org.example.aop.UserAuditAspect;
+import org.example.util.AdaptiveLimiter;
 import org.example.util.ObjectValidator;
+import org.example.util.RequestCoalescer;
+import org.example.web.ResponseCache;
+import org.example.web.ResponseFormats;
 import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
 import org.springframework.context.annotation.*;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
-import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -22,10 +43,20 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import javax.sql.DataSource;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+@Slf4j
 @Configuration
-@EnableWebMvc
+@Import(WebMvcConfig.class)
 @EnableAspectJAutoProxy
 @EnableSwagger2
 @ComponentScan(basePackages = "org.example")
@@ -40,25 +71,165 @@ public class AppConfig implements WebMvcConfigurer {
     }
 
     @Bean
-    public DriverManagerDataSource dataSource() {
-        YamlPropertiesFactoryBean yaml = yamlProperties();
-        yaml.afterPropertiesSet();
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(Objects.requireNonNull(yaml.getObject()).getProperty("database.driver-class-name"));
-        dataSource.setUrl(yaml.getObject().getProperty("database.url"));
-        dataSource.setUsername(yaml.getObject().getProperty("database.username"));
-        dataSource.setPassword(yaml.getObject().getProperty("database.password"));
-        return dataSource;
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource() {
+        Properties properties = applicationProperties();
+        return new HikariDataSource(hikariConfig("car-shop-primary", properties.getProperty("database.url"), properties));
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public ReplicaRoutingDataSource routingDataSource() {
+        Properties properties = applicationProperties();
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (String url : properties.getProperty("database.replica.urls", "").split(",")) {
+            if (!url.isBlank()) {
+                String name = "car-shop-replica-" + (replicas.size() + 1);
+                HikariConfig config = hikariConfig(name, url.trim(), properties);
+                config.setReadOnly(true);
+                config.setInitializationFailTimeout(-1);
+                replicas.put(name, new HikariDataSource(config));
+            }
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(dataSource(), replicas,
+                Long.parseLong(properties.getProperty("database.replica.max-lag-ms", "1000")),
+                Long.parseLong(properties.getProperty("database.replica.check-interval-ms", "2000")));
+        routing.setBeforeConnection(AdmissionAspect::admitPending);
+        if (Boolean.parseBoolean(properties.getProperty("server.virtual-threads", "false"))) {
+            int poolSize = Integer.parseInt(properties.getProperty("database.pool.maximum-pool-size", "10"));
+            routing.setConnectionLimiter(new ConnectionLimiter(
+                    Integer.parseInt(properties.getProperty("database.pool.max-concurrency",
+                            String.valueOf(poolSize * (1 + replicas.size())))),
+                    Long.parseLong(properties.getProperty("database.pool.connection-timeout", "3000"))));
+        }
+        return routing;
+    }
+
+    @Bean
+    public ReplicaRoutingAspect replicaRoutingAspect() {
+        return new ReplicaRoutingAspect(Long.parseLong(applicationProperties().getProperty("database.replica.sticky-ms", "5000")));
+    }
+
+    @Bean
+    public AdmissionAspect admissionAspect() {
+        Properties properties = applicationProperties();
+        return new AdmissionAspect(adaptiveLimiter("read", 20, 4, 200, properties),
+                adaptiveLimiter("write", 10, 2, 100, properties),
+                Long.parseLong(properties.getProperty("admission.retry-after-seconds", "1")));
+    }
+
+    private static AdaptiveLimiter adaptiveLimiter(String kind, int initialLimit, int minLimit, int maxLimit,
+                                                   Properties properties) {
+        String prefix = "admission." + kind + ".";
+        return new AdaptiveLimiter(
+                Integer.parseInt(properties.getProperty(prefix + "initial-limit", String.valueOf(initialLimit))),
+                Integer.parseInt(properties.getProperty(prefix + "min-limit", String.valueOf(minLimit))),
+                Integer.parseInt(properties.getProperty(prefix + "max-limit", String.valueOf(maxLimit))),
+                Double.parseDouble(properties.getProperty("admission.tolerance", "1.5")));
+    }
+
+    private HikariConfig hikariConfig(String poolName, String url, Properties properties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName(properties.getProperty("database.driver-class-name"));
+        config.setJdbcUrl(url);
+        config.setUsername(properties.getProperty("database.username"));
+        config.setPassword(properties.getProperty("database.password"));
+        config.setMaximumPoolSize(Integer.parseInt(properties.getProperty("database.pool.maximum-pool-size", "10")));
+        config.setMinimumIdle(Integer.parseInt(properties.getProperty("database.pool.minimum-idle", "2")));
+        config.setConnectionTimeout(Long.parseLong(properties.getProperty("database.pool.connection-timeout", "3000")));
+        config.setIdleTimeout(Long.parseLong(properties.getProperty("database.pool.idle-timeout", "600000")));
+        config.setMaxLifetime(Long.parseLong(properties.getProperty("database.pool.max-lifetime", "1800000")));
+        config.addDataSourceProperty("prepareThreshold",
+                properties.getProperty("database.pool.prepare-threshold", "3"));
+        config.addDataSourceProperty("preparedStatementCacheQueries",
+                properties.getProperty("database.pool.prepared-statement-cache-queries", "256"));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                properties.getProperty("database.pool.prepared-statement-cache-size-mib", "5"));
+        config.setMetricsTrackerFactory(poolMetrics());
+        return config;
+    }
+
+    @Bean
+    public EntityCache<Car> carCache() {
+        return entityCache("car", (id, car) -> 96 + 2 * chars(car.getBrand(), car.getModel(), car.getCondition()));
+    }
+
+    @Bean
+    public EntityCache<Order> orderCache() {
+        return entityCache("order", (id, order) -> 96 + 2 * chars(order.getStatus()));
+    }
+
+    @Bean
+    public EntityCache<User> userCache() {
+        return entityCache("user", (id, user) -> 128 + 2 * chars(user.getLogin(), user.getPassword(), user.getName(), user.getCity()));
+    }
+
+    @Bean
+    public CarIndex carIndex() {
+        return new CarIndex();
+    }
+
+    @Bean
+    public ResponseFormats responseFormats() {
+        return new ResponseFormats(Jackson2ObjectMapperBuilder.json().build(), objectMapper());
+    }
+
+    @Bean
+    public ResponseCache responseCache() {
+        Properties properties = applicationProperties();
+        return new ResponseCache(responseFormats(),
+                Long.parseLong(properties.getProperty("cache.response.maximum-weight-bytes", "16777216")),
+                Integer.parseInt(properties.getProperty("cache.response.compress-min-bytes", "1024")),
+                Duration.ofSeconds(Long.parseLong(properties.getProperty("cache.response.expire-after-access-seconds", "300"))));
+    }
+
+    @Bean(destroyMethod = "close")
+    public PgInvalidationBus invalidationBus(JdbcTemplate jdbcTemplate, RoleStorage roleStorage) {
+        Properties properties = applicationProperties();
+        return new PgInvalidationBus(jdbcTemplate,
+                () -> DriverManager.getConnection(properties.getProperty("database.url"),
+                        properties.getProperty("database.username"), properties.getProperty("database.password")),
+                List.of(carCache(), carIndex(), orderCache(), userCache(), roleStorage));
+    }
+
+    @Bean(destroyMethod = "close")
+    public RefreshScheduler refreshScheduler() {
+        Properties properties = applicationProperties();
+        return new RefreshScheduler(List.of(carCache(), carIndex(), orderCache(), userCache()),
+                Duration.ofSeconds(Long.parseLong(properties.getProperty("cache.rebuild.interval-seconds", "600"))),
+                Duration.ofMillis(Long.parseLong(properties.getProperty("cache.rebuild.check-interval-ms", "1000"))));
+    }
+
+    private <V> EntityCache<V> entityCache(String name, Weigher<Integer, V> weigher) {
+        Properties properties = applicationProperties();
+        return new EntityCache<>(name,
+                Long.parseLong(properties.getProperty("cache.maximum-weight-bytes", "8388608")),
+                weigher,
+                Duration.ofSeconds(Long.parseLong(properties.getProperty("cache.expire-after-write-seconds", "300"))),
+                Duration.ofMillis(Long.parseLong(properties.getProperty("database.replica.max-lag-ms", "1000"))));
+    }
+
+    private static int chars(String... values) {
+        int length = 0;
+        for (String value : values) {
+            length += value == null ? 0 : value.length();
+        }
+        return length;
     }
 
     @Bean
-    public JdbcTemplate jdbcTemplate() {
-        return new JdbcTemplate(dataSource());
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
     }
 
     @Bean
-    public NamedParameterJdbcTemplate namedParameterJdbcTemplate() {
-        return new NamedParameterJdbcTemplate(dataSource());
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
     }
 
     @Bean
@@ -94,6 +265,37 @@ public class AppConfig implements WebMvcConfigurer {
                 .build();
     }
 
+    /**
+     * С {@code server.virtual-threads} выполняет обработчики запросов в виртуальных потоках
+     * ({@link org.example.web.VirtualThreadHandlerAdapter}). Проект собирается для Java 17, поэтому исполнитель
+     * получается через рефлексию; на JVM без виртуальных потоков запросы обрабатываются в потоках сервера.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (!Boolean.parseBoolean(applicationProperties().getProperty("server.virtual-threads", "false"))) {
+            return;
+        }
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+            configurer.setDefaultTimeout(0);
+            log.info("Requests are handled on virtual threads");
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not available on Java {}, requests are handled on server threads",
+                    Runtime.version().feature());
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(replicaRoutingAspect());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.addAll(responseFormats().binaryConverters());
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("swagger-ui.html")
@@ -111,4 +313,13 @@ public class AppConfig implements WebMvcConfigurer {
     public ObjectValidator objectValidator() {
         return new ObjectValidator();
     }
+
+    @Bean
+    public RequestCoalescer requestCoalescer() {
+        return new RequestCoalescer();
+    }
+
+    private Properties applicationProperties() {
+        return Objects.requireNonNull(yamlProperties().getObject());
+    }
 }
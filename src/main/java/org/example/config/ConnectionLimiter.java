@@ -0,0 +1,133 @@
+package org.example.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничивает количество одновременно выданных соединений с базой данных.
+ * <p>
+ * При обработке запросов в виртуальных потоках число потоков не ограничено пулом сервера, и тысячи потоков
+ * одновременно ожидали бы соединение внутри пула. Ограничитель выдает соединения не более чем {@code permits}
+ * потокам в порядке очереди; остальные ждут разрешения на честном семафоре, не занимая потоков-носителей,
+ * а по истечении времени ожидания получают {@link SQLTransientConnectionException}, как при исчерпании пула.
+ * Разрешение возвращается при закрытии соединения.
+ * </p>
+ */
+public class ConnectionLimiter {
+    private final int permits;
+    private final Semaphore semaphore;
+    private final long timeoutMillis;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * Источник соединений, обращение к которому ограничивается.
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    /**
+     * Создает ограничитель.
+     *
+     * @param permits       максимальное количество одновременно выданных соединений.
+     * @param timeoutMillis максимальное время ожидания разрешения в миллисекундах.
+     */
+    public ConnectionLimiter(int permits, long timeoutMillis) {
+        this.permits = permits;
+        this.semaphore = new Semaphore(permits, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Получает разрешение и соединение из источника.
+     *
+     * @param source источник соединений.
+     * @return соединение, закрытие которого возвращает разрешение.
+     * @throws SQLException если разрешение не получено за отведенное время или источник не выдал соединение.
+     */
+    public Connection acquire(ConnectionSource source) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            if (!semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Connection is not available, request timed out after "
+                                                          + timeoutMillis + "ms waiting for one of " + permits + " permits");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        } finally {
+            waitNanos.add(System.nanoTime() - started);
+        }
+        try {
+            Connection connection = source.getConnection();
+            acquired.increment();
+            return limited(connection);
+        } catch (SQLException | RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает состояние ограничителя.
+     *
+     * @return количество разрешений, занятых соединений, ожидающих потоков и счетчики выдачи.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long count = acquired.sum();
+        result.put("permits", permits);
+        result.put("active", permits - semaphore.availablePermits());
+        result.put("waiting", semaphore.getQueueLength());
+        result.put("acquired", count);
+        result.put("timeouts", timeouts.sum());
+        result.put("averageWaitMillis", count == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / count);
+        return result;
+    }
+
+    private Connection limited(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (isClose(method)) {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                semaphore.release();
+                            }
+                        }
+                        return null;
+                    }
+                    if ("equals".equals(method.getName()) && method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    }
+                    if ("hashCode".equals(method.getName()) && method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static boolean isClose(Method method) {
+        return "close".equals(method.getName()) && method.getParameterCount() == 0;
+    }
+}
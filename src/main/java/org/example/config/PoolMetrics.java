@@ -0,0 +1,75 @@
+package org.example.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.example.util.LatencyRecorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сборщик статистики пулов соединений HikariCP.
+ * <p>
+ * Регистрируется в пуле как {@link MetricsTrackerFactory} и для каждого пула хранит текущее состояние
+ * (активные, свободные и ожидающие соединения), а также распределение времени получения соединения.
+ * </p>
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+    private static final int ACQUIRE_WINDOW = 2048;
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker tracker = new Tracker(poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    /**
+     * Возвращает снимок статистики по всем зарегистрированным пулам.
+     *
+     * @return статистика, сгруппированная по имени пула.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        trackers.forEach((name, tracker) -> result.put(name, tracker.snapshot()));
+        return result;
+    }
+
+    private static final class Tracker implements IMetricsTracker {
+        private final PoolStats poolStats;
+        private final LatencyRecorder acquireTime = new LatencyRecorder(ACQUIRE_WINDOW);
+        private final LongAdder timeouts = new LongAdder();
+
+        private Tracker(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireTime.record(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("active", poolStats.getActiveConnections());
+            result.put("idle", poolStats.getIdleConnections());
+            result.put("total", poolStats.getTotalConnections());
+            result.put("waiting", poolStats.getPendingThreads());
+            result.put("max", poolStats.getMaxConnections());
+            result.put("acquired", acquireTime.getCount());
+            result.put("timeouts", timeouts.sum());
+            result.put("acquireMillis", acquireTime.percentiles());
+            return result;
+        }
+    }
+}
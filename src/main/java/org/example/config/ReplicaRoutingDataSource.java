@@ -0,0 +1,274 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Источник данных, разделяющий чтение и запись между основной базой и репликами.
+ * <p>
+ * По умолчанию все соединения выдаются основной базой. Реплика используется, только если текущий поток
+ * помечен как читающий через {@link #setReadOnly(boolean)}; реплики выбираются по кругу среди исправных.
+ * </p>
+ * <p>
+ * Фоновая проверка периодически измеряет отставание каждой реплики. Реплика, которая недоступна или
+ * отстает больше допустимого, исключается из маршрутизации до следующей успешной проверки. Если получить
+ * соединение с репликой не удалось, она сразу исключается, а запрос выполняется на основной базе.
+ * </p>
+ * <p>
+ * Признак чтения хранится в {@link ThreadLocal}, поэтому работает и в виртуальных потоках: каждый запрос
+ * обрабатывается своим потоком от начала до конца. Для режима виртуальных потоков количество одновременно
+ * выданных соединений ограничивается {@link ConnectionLimiter}.
+ * </p>
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> READ_ONLY = ThreadLocal.withInitial(() -> false);
+    private static final String LAG_QUERY = """
+            SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                                 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END, 0)""";
+
+    private final DataSource primary;
+    private final Map<String, HikariDataSource> replicas;
+    private final long maxLagMillis;
+    private final ScheduledExecutorService monitor;
+    private final Map<String, Long> lags = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+    private volatile List<String> healthy = List.of();
+    private volatile ConnectionLimiter limiter;
+    private volatile Runnable beforeConnection;
+
+    /**
+     * Создает источник данных и запускает проверку реплик, если они заданы.
+     *
+     * @param primary             основная база данных.
+     * @param replicas            пулы соединений реплик по имени.
+     * @param maxLagMillis        максимальное допустимое отставание реплики в миллисекундах.
+     * @param checkIntervalMillis интервал проверки реплик в миллисекундах.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, HikariDataSource> replicas,
+                                    long maxLagMillis, long checkIntervalMillis) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLagMillis = maxLagMillis;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+        if (replicas.isEmpty()) {
+            monitor = null;
+        } else {
+            monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            monitor.scheduleWithFixedDelay(this::checkReplicas, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Помечает текущий поток как выполняющий только чтение.
+     *
+     * @param readOnly {@code true}, если соединения можно получать с реплики.
+     * @return предыдущее значение признака для восстановления после вызова.
+     */
+    public static boolean setReadOnly(boolean readOnly) {
+        boolean previous = READ_ONLY.get();
+        READ_ONLY.set(readOnly);
+        return previous;
+    }
+
+    /**
+     * Проверяет, может ли текущий поток читать с реплики.
+     *
+     * @return {@code true}, если поток помечен как выполняющий только чтение.
+     */
+    public static boolean isReadOnly() {
+        return READ_ONLY.get();
+    }
+
+    /**
+     * Выполняет действие на основной базе независимо от признака чтения текущего потока.
+     * <p>
+     * Используется для чтений, которым нельзя видеть отставание реплики, например загрузки
+     * полного списка существующих идентификаторов.
+     * </p>
+     *
+     * @param action действие с обращением к базе данных.
+     */
+    public static void onPrimary(Runnable action) {
+        boolean previous = setReadOnly(false);
+        try {
+            action.run();
+        } finally {
+            setReadOnly(previous);
+        }
+    }
+
+    /**
+     * Выполняет чтение на основной базе независимо от признака чтения текущего потока и возвращает результат.
+     * <p>
+     * Используется для данных, которые после чтения хранятся в общем кэше: строка из отстающей реплики
+     * осталась бы в кэше и после того, как реплика догонит основную базу.
+     * </p>
+     *
+     * @param action чтение из базы данных.
+     * @param <T>    тип результата.
+     * @return результат чтения.
+     */
+    public static <T> T fromPrimary(Supplier<T> action) {
+        boolean previous = setReadOnly(false);
+        try {
+            return action.get();
+        } finally {
+            setReadOnly(previous);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!READ_ONLY.get()) {
+            return PRIMARY;
+        }
+        List<String> candidates = healthy;
+        if (candidates.isEmpty()) {
+            primaryReads.increment();
+            return PRIMARY;
+        }
+        replicaReads.increment();
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * Ограничивает количество одновременно выданных соединений со всеми базами.
+     *
+     * @param limiter ограничитель или {@code null}, чтобы снять ограничение.
+     */
+    public void setConnectionLimiter(ConnectionLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * Задает действие, выполняемое перед выдачей каждого соединения, например допуск запроса к базе данных.
+     * Исключение действия передается вызывающему коду, и соединение не выдается.
+     *
+     * @param action действие или {@code null}, чтобы его снять.
+     */
+    public void setBeforeConnection(Runnable action) {
+        this.beforeConnection = action;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Runnable action = beforeConnection;
+        if (action != null) {
+            action.run();
+        }
+        ConnectionLimiter current = limiter;
+        return current == null ? route() : current.acquire(this::route);
+    }
+
+    private Connection route() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            markDown((String) key, e);
+            failovers.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Возвращает состояние маршрутизации чтения.
+     *
+     * @return исправные реплики, отставание каждой реплики и счетчики чтений и переключений на основную базу.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("replicas", replicas.keySet());
+        result.put("healthy", healthy);
+        result.put("lagMillis", new LinkedHashMap<>(lags));
+        result.put("replicaReads", replicaReads.sum());
+        result.put("primaryReads", primaryReads.sum());
+        result.put("failovers", failovers.sum());
+        ConnectionLimiter current = limiter;
+        if (current != null) {
+            result.put("limiter", current.stats());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+        replicas.values().forEach(HikariDataSource::close);
+    }
+
+    private void checkReplicas() {
+        List<String> available = new ArrayList<>();
+        replicas.forEach((name, replica) -> {
+            try (Connection connection = replica.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                long lag = resultSet.getLong(1);
+                lags.put(name, lag);
+                if (lag <= maxLagMillis) {
+                    available.add(name);
+                } else if (healthy.contains(name)) {
+                    log.warn("Replica {} lags {} ms behind primary, reads go to other nodes", name, lag);
+                }
+            } catch (SQLException | RuntimeException e) {
+                lags.remove(name);
+                if (healthy.contains(name)) {
+                    log.warn("Replica {} is unavailable: {}", name, e.getMessage());
+                }
+            }
+        });
+        healthy = List.copyOf(available);
+    }
+
+    private synchronized void markDown(String name, SQLException cause) {
+        log.warn("Replica {} failed to provide a connection, falling back to primary: {}", name, cause.getMessage());
+        List<String> remaining = new ArrayList<>(healthy);
+        remaining.remove(name);
+        healthy = List.copyOf(remaining);
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.config;
+
+import org.example.web.VirtualThreadHandlerAdapter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.DelegatingWebMvcConfiguration;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+/**
+ * Конфигурация Spring MVC, заменяющая {@code @EnableWebMvc}.
+ * <p>
+ * Настройки по-прежнему собираются из всех {@code WebMvcConfigurer} ({@link AppConfig}); отличается только
+ * адаптер обработчиков: {@link VirtualThreadHandlerAdapter} выполняет контроллеры в исполнителе асинхронных
+ * запросов, если он задан.
+ * </p>
+ */
+@Configuration(proxyBeanMethods = false)
+public class WebMvcConfig extends DelegatingWebMvcConfiguration {
+
+    @Override
+    protected RequestMappingHandlerAdapter createRequestMappingHandlerAdapter() {
+        return new VirtualThreadHandlerAdapter();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результат обработки одного элемента пакетного запроса.
+ * <p>
+ * Поля:
+ * <ul>
+ *     <li>{@link #index} - позиция элемента в исходном массиве запроса.</li>
+ *     <li>{@link #id} - сгенерированный идентификатор созданной записи или {@code null}, если запись не создана.</li>
+ *     <li>{@link #errors} - сообщения об ошибках валидации; пустой список для созданной записи.</li>
+ * </ul>
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResultDTO {
+    private int index;
+    private Integer id;
+    private List<String> errors;
+}
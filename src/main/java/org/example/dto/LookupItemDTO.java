@@ -0,0 +1,27 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат поиска одного идентификатора в групповом запросе {@code ?ids=}.
+ * <p>
+ * Поля:
+ * <ul>
+ *     <li>{@link #id} - запрошенный идентификатор.</li>
+ *     <li>{@link #item} - найденная запись или {@code null}, если запись не найдена.</li>
+ *     <li>{@link #error} - сообщение об отсутствии записи; {@code null} для найденной записи.</li>
+ * </ul>
+ * </p>
+ *
+ * @param <T> тип записи.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LookupItemDTO<T> {
+    private int id;
+    private T item;
+    private String error;
+}
@@ -0,0 +1,28 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import java.util.List;
+
+/**
+ * Объект передачи данных (DTO) для массового изменения статуса заказов.
+ * <p>
+ * Заказы выбираются либо списком идентификаторов {@link #ids}, либо фильтром
+ * {@link #nameFilter}/{@link #params} с теми же значениями, что и у {@code /orders/filter}.
+ * Если указан {@link #expectedStatus}, изменяются только заказы в этом статусе.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatusChangeDTO {
+    private List<Integer> ids;
+    private String nameFilter;
+    private String params;
+    @NotBlank(message = "поле статус не должно быть пустым")
+    private String status;
+    private String expectedStatus;
+}
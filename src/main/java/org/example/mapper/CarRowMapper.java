@@ -0,0 +1,28 @@
+package org.example.mapper;
+
+import org.example.model.Car;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Преобразует строку таблицы {@code car_shop.car} в объект {@link Car} по номерам столбцов.
+ * <p>
+ * В отличие от {@link org.springframework.jdbc.core.BeanPropertyRowMapper}, не использует рефлексию и
+ * не сопоставляет имена столбцов со свойствами на каждой строке. Запрос обязан выбирать столбцы
+ * в порядке {@link #COLUMNS}.
+ * </p>
+ */
+public final class CarRowMapper implements RowMapper<Car> {
+    public static final String COLUMNS = "car_id, brand, model, year, price, condition";
+    public static final CarRowMapper INSTANCE = new CarRowMapper();
+
+    private CarRowMapper() {
+    }
+
+    @Override
+    public Car mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Car(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getDouble(5), rs.getString(6));
+    }
+}
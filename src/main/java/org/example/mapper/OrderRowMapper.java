@@ -0,0 +1,28 @@
+package org.example.mapper;
+
+import org.example.model.Order;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Преобразует строку таблицы {@code car_shop.orders} в объект {@link Order} по номерам столбцов.
+ * <p>
+ * Столбцы {@code user_id} и {@code car_id} читаются явно, без сопоставления имен. Запрос обязан
+ * выбирать столбцы в порядке {@link #COLUMNS}.
+ * </p>
+ */
+public final class OrderRowMapper implements RowMapper<Order> {
+    public static final String COLUMNS = "order_id, user_id, car_id, date, status";
+    public static final OrderRowMapper INSTANCE = new OrderRowMapper();
+
+    private OrderRowMapper() {
+    }
+
+    @Override
+    public Order mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Order(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getObject(4, LocalDate.class), rs.getString(5));
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.mapper;
+
+import org.example.model.Roles;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Преобразует значение первого столбца строки (название роли) в {@link Roles}.
+ * <p>
+ * Для нераспознанного названия возвращает {@code null}.
+ * </p>
+ */
+public final class RoleRowMapper implements RowMapper<Roles> {
+    public static final RoleRowMapper INSTANCE = new RoleRowMapper();
+
+    private RoleRowMapper() {
+    }
+
+    @Override
+    public Roles mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return Roles.fromTitle(rs.getString(1));
+    }
+}
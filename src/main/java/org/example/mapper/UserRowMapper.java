@@ -0,0 +1,27 @@
+package org.example.mapper;
+
+import org.example.model.User;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Преобразует строку таблицы {@code car_shop.user} в объект {@link User} по номерам столбцов.
+ * <p>
+ * Роли и заказы пользователя не заполняются. Запрос обязан выбирать столбцы в порядке {@link #COLUMNS}.
+ * </p>
+ */
+public final class UserRowMapper implements RowMapper<User> {
+    public static final String COLUMNS = "user_id, login, password, name, age, city";
+    public static final UserRowMapper INSTANCE = new UserRowMapper();
+
+    private UserRowMapper() {
+    }
+
+    @Override
+    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new User(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5), rs.getString(6),
+                null, null);
+    }
+}
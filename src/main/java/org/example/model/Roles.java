@@ -3,6 +3,10 @@ package org.example.model;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * Перечисление, представляющее различные роли пользователей в системе.
  *
@@ -16,10 +20,28 @@ public enum Roles {
     MANAGER("Менеджер"),
     CLIENT("Клиент");
 
+    private static final Map<String, Roles> BY_TITLE = new HashMap<>();
+
+    static {
+        for (Roles role : values()) {
+            BY_TITLE.put(role.title.toLowerCase(Locale.ROOT), role);
+        }
+    }
+
     private final String title;
 
     Roles(String title) {
         this.title = title;
     }
 
+    /**
+     * Находит роль по ее заголовку без учета регистра.
+     *
+     * @param title заголовок роли, например "Администратор".
+     * @return роль или {@code null}, если заголовок не распознан.
+     */
+    public static Roles fromTitle(String title) {
+        return title == null ? null : BY_TITLE.get(title.toLowerCase(Locale.ROOT));
+    }
+
 }
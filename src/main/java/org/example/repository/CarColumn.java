@@ -0,0 +1,87 @@
+package org.example.repository;
+
+import lombok.Getter;
+import org.example.model.Car;
+import org.example.util.NotFoundException;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.function.Function;
+
+/**
+ * Белый список столбцов таблицы {@code car_shop.car}, доступных для фильтрации и выборки.
+ * <p>
+ * Связывает значение параметра запроса {@code name-filter} с именем столбца в базе данных
+ * и способом преобразования строкового значения фильтра в тип столбца. Имена столбцов
+ * подставляются в SQL только из этого перечисления, поэтому пользовательский ввод
+ * попадает в запрос исключительно в виде параметров. Значение параметра совпадает с именем свойства
+ * {@link org.example.dto.CarDTO} и используется в {@link Projection}.
+ * </p>
+ */
+@Getter
+public enum CarColumn implements Projection.Column {
+    BRAND("brand", "brand", String::valueOf, ResultSet::getString),
+    MODEL("model", "model", String::valueOf, ResultSet::getString),
+    YEAR("year", "year", Integer::valueOf, ResultSet::getInt),
+    PRICE("price", "price", BigDecimal::new, ResultSet::getDouble),
+    CONDITION("condition", "condition", String::valueOf, ResultSet::getString);
+
+    private final String parameter;
+    private final String column;
+    private final Function<String, ?> parser;
+    private final Projection.Reader reader;
+
+    CarColumn(String parameter, String column, Function<String, ?> parser, Projection.Reader reader) {
+        this.parameter = parameter;
+        this.column = column;
+        this.parser = parser;
+        this.reader = reader;
+    }
+
+    @Override
+    public String getProperty() {
+        return parameter;
+    }
+
+    /**
+     * Возвращает значение столбца автомобиля, уже находящегося в памяти.
+     *
+     * @param car автомобиль.
+     * @return значение того же типа, что читает {@link #getReader()}.
+     */
+    public Object extract(Car car) {
+        return switch (this) {
+            case BRAND -> car.getBrand();
+            case MODEL -> car.getModel();
+            case YEAR -> car.getYear();
+            case PRICE -> car.getPrice();
+            case CONDITION -> car.getCondition();
+        };
+    }
+
+    /**
+     * Преобразует строковое значение фильтра в тип столбца.
+     *
+     * @param value значение из параметра запроса.
+     * @return значение, пригодное для передачи в качестве параметра SQL-запроса.
+     */
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    /**
+     * Находит столбец по значению параметра {@code name-filter}.
+     *
+     * @param parameter значение параметра запроса.
+     * @return соответствующий столбец.
+     * @throws NotFoundException если столбец отсутствует в белом списке.
+     */
+    public static CarColumn of(String parameter) {
+        for (CarColumn column : values()) {
+            if (column.parameter.equals(parameter)) {
+                return column;
+            }
+        }
+        throw new NotFoundException("Unexpected value: " + parameter);
+    }
+}
@@ -0,0 +1,346 @@
+package org.example.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.cache.InvalidationPublisher;
+import org.example.cache.InvalidationTarget;
+import org.example.cache.Refreshable;
+import org.example.model.Car;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Инвертированный индекс автомобилей в памяти для фильтрации без обращения к базе данных.
+ * <p>
+ * Для марки, состояния, года выпуска и диапазона цены ({@link #PRICE_BUCKET}) хранится сжатая битовая карта
+ * идентификаторов ({@link RoaringBitmap}). Поиск по нескольким атрибутам выполняется объединением карт
+ * значений одного атрибута и пересечением карт разных атрибутов; строки берутся из копий, хранящихся
+ * в индексе, и возвращаются в порядке идентификатора, как и запросом к базе данных.
+ * </p>
+ * <p>
+ * Индекс строится из основной базы в фоне ({@link org.example.cache.RefreshScheduler}) при запуске, после сброса
+ * и периодически, чтобы в него попадали строки, добавленные в обход приложения; пока он не построен, поиск
+ * выполняется запросом к базе данных. После локальной записи хранилище перечитывает измененные строки
+ * ({@link #reload(Collection)}), изменения с других узлов приходят как инвалидации кэша {@code car} и перечитываются
+ * так же, а полная инвалидация сбрасывает индекс.
+ * Изменения, сделанные во время построения, запоминаются и применяются к новому индексу перед заменой.
+ * </p>
+ */
+@Slf4j
+public class CarIndex implements InvalidationTarget, Refreshable {
+    static final int PRICE_BUCKET = 1_000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private Map<Integer, Car> rows = new HashMap<>();
+    private RoaringBitmap all = new RoaringBitmap();
+    private Map<String, RoaringBitmap> brands = new HashMap<>();
+    private Map<String, RoaringBitmap> conditions = new HashMap<>();
+    private Map<Integer, RoaringBitmap> years = new HashMap<>();
+    private NavigableMap<Long, RoaringBitmap> prices = new TreeMap<>();
+    private Map<Integer, Car> pending;
+    private volatile RowSource source;
+    private volatile boolean ready;
+
+    /**
+     * Источник строк таблицы автомобилей.
+     */
+    public interface RowSource {
+        /**
+         * Передает потребителю все автомобили.
+         *
+         * @param consumer потребитель автомобилей.
+         */
+        void forEach(Consumer<Car> consumer);
+
+        /**
+         * Читает автомобили по идентификаторам.
+         *
+         * @param ids идентификаторы.
+         * @return найденные автомобили.
+         */
+        List<Car> byIds(Collection<Integer> ids);
+    }
+
+    /**
+     * Подключает источник строк. Вызывается хранилищем автомобилей.
+     *
+     * @param source источник строк из основной базы данных.
+     */
+    void bind(RowSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Ищет автомобили по индексу.
+     *
+     * @param search условия поиска.
+     * @return автомобили в порядке идентификатора или {@code null}, если индекс еще не построен.
+     */
+    public List<Car> search(CarSearch search) {
+        if (!ready) {
+            fallbacks.increment();
+            return null;
+        }
+        searches.increment();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = null;
+            result = and(result, union(brands, search.brands()));
+            result = and(result, union(conditions, search.conditions()));
+            result = and(result, union(years, search.years()));
+            if (search.priceFrom() != null || search.priceTo() != null) {
+                long from = search.priceFrom() == null ? Long.MIN_VALUE : bucket(search.priceFrom());
+                long to = search.priceTo() == null ? Long.MAX_VALUE : bucket(search.priceTo());
+                result = and(result, from > to ? new RoaringBitmap()
+                        : RoaringBitmap.or(prices.subMap(from, true, to, true).values().iterator()));
+            }
+            if (result == null) {
+                result = all;
+            }
+            List<Car> found = new ArrayList<>(result.getCardinality());
+            result.forEach((int id) -> {
+                Car car = rows.get(id);
+                if (search.matchesPrice(car.getPrice())) {
+                    found.add(car);
+                }
+            });
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Перечитывает автомобили из базы данных и заменяет или удаляет их в индексе. Вызывается после фиксации
+     * локальной записи и при инвалидации с другого узла.
+     * <p>
+     * Чтение и применение выполняются под общей блокировкой, поэтому более позднее перечитывание всегда
+     * применяется последним и видит все зафиксированные к нему изменения. Если бы индекс брал значения
+     * из объектов вызывающего кода, два обновления одной строки, зафиксированные в порядке T1, T2, могли бы
+     * попасть в индекс в порядке T2, T1, и до следующего построения поиск отдавал бы значения T1.
+     * Если перечитать строки не удалось, индекс сбрасывается и будет построен заново.
+     * </p>
+     *
+     * @param ids идентификаторы измененных, добавленных или удаленных автомобилей.
+     */
+    void reload(Collection<Integer> ids) {
+        RowSource rowSource = source;
+        if (ids.isEmpty() || rowSource == null || !ready && !rebuildLock.isLocked()) {
+            return;
+        }
+        reloadLock.lock();
+        try {
+            Map<Integer, Car> changes = new HashMap<>();
+            ids.forEach(id -> changes.put(id, null));
+            rowSource.byIds(ids).forEach(car -> changes.put(car.getCar_id(), car));
+            apply(changes);
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh car index, it will be rebuilt: {}", e.getMessage());
+            reset();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает индекс; фоновый поток построит его заново.
+     */
+    public void reset() {
+        generation.incrementAndGet();
+        ready = false;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public String getName() {
+        return "car";
+    }
+
+    @Override
+    public void evict(Collection<Integer> ids) {
+        reload(ids);
+    }
+
+    @Override
+    public void evictAll() {
+        reset();
+    }
+
+    @Override
+    public void setPublisher(InvalidationPublisher publisher) {
+        // Изменения публикует кэш автомобилей с тем же именем.
+    }
+
+    /**
+     * Возвращает состояние индекса.
+     *
+     * @return количество строк и значений атрибутов и счетчики поисков.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            result.put("ready", ready);
+            result.put("rows", rows.size());
+            result.put("brands", brands.size());
+            result.put("conditions", conditions.size());
+            result.put("years", years.size());
+            result.put("priceBuckets", prices.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.put("searches", searches.sum());
+        result.put("fallbacks", fallbacks.sum());
+        return result;
+    }
+
+    /**
+     * Строит индекс заново. Пока идет построение, поиск выполняется по предыдущей версии индекса.
+     *
+     * @throws RuntimeException если автомобили не удалось прочитать; предыдущая версия при этом сохраняется.
+     */
+    @Override
+    public void refresh() {
+        RowSource rowSource = source;
+        if (rowSource == null) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            long started = generation.get();
+            lock.writeLock().lock();
+            try {
+                pending = new HashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            CarIndex fresh = new CarIndex();
+            rowSource.forEach(car -> {
+                fresh.rows.put(car.getCar_id(), car);
+                fresh.index(car);
+            });
+            lock.writeLock().lock();
+            try {
+                fresh.applyUnlocked(pending);
+                pending = null;
+                rows = fresh.rows;
+                all = fresh.all;
+                brands = fresh.brands;
+                conditions = fresh.conditions;
+                years = fresh.years;
+                prices = fresh.prices;
+                ready = generation.get() == started;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void apply(Map<Integer, Car> changes) {
+        lock.writeLock().lock();
+        try {
+            applyUnlocked(changes);
+            if (pending != null) {
+                pending.putAll(changes);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyUnlocked(Map<Integer, Car> changes) {
+        changes.forEach((id, car) -> {
+            unindex(rows.remove(id));
+            if (car != null) {
+                rows.put(id, car);
+                index(car);
+            }
+        });
+    }
+
+    private void index(Car car) {
+        int id = car.getCar_id();
+        all.add(id);
+        bitmap(brands, car.getBrand()).add(id);
+        bitmap(conditions, car.getCondition()).add(id);
+        bitmap(years, car.getYear()).add(id);
+        bitmap(prices, bucket(car.getPrice())).add(id);
+    }
+
+    private void unindex(Car car) {
+        if (car == null) {
+            return;
+        }
+        int id = car.getCar_id();
+        all.remove(id);
+        remove(brands, car.getBrand(), id);
+        remove(conditions, car.getCondition(), id);
+        remove(years, car.getYear(), id);
+        remove(prices, bucket(car.getPrice()), id);
+    }
+
+    private static <K> RoaringBitmap bitmap(Map<K, RoaringBitmap> index, K key) {
+        return index.computeIfAbsent(key, ignored -> new RoaringBitmap());
+    }
+
+    private static <K> void remove(Map<K, RoaringBitmap> index, K key, int id) {
+        RoaringBitmap bitmap = index.get(key);
+        if (bitmap != null) {
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <K> RoaringBitmap union(Map<K, RoaringBitmap> index, Set<K> keys) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        return RoaringBitmap.or(keys.stream().map(index::get).filter(bitmap -> bitmap != null).iterator());
+    }
+
+    private static RoaringBitmap and(RoaringBitmap result, RoaringBitmap next) {
+        if (next == null) {
+            return result;
+        }
+        return result == null ? next : RoaringBitmap.and(result, next);
+    }
+
+    private static long bucket(double price) {
+        return (long) Math.floor(price / PRICE_BUCKET);
+    }
+}
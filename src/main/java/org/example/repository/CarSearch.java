@@ -0,0 +1,88 @@
+package org.example.repository;
+
+import org.example.util.NotFoundException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Условия поиска автомобилей по нескольким атрибутам.
+ * <p>
+ * Значения одного атрибута объединяются через ИЛИ, разные атрибуты — через И. Пустое множество
+ * или отсутствующая граница цены означает отсутствие ограничения. Границы цены включаются.
+ * </p>
+ *
+ * @param brands     допустимые марки.
+ * @param conditions допустимые состояния.
+ * @param years      допустимые годы выпуска.
+ * @param priceFrom  минимальная цена или {@code null}.
+ * @param priceTo    максимальная цена или {@code null}.
+ */
+public record CarSearch(Set<String> brands, Set<String> conditions, Set<Integer> years, Double priceFrom, Double priceTo) {
+
+    public CarSearch {
+        brands = Set.copyOf(brands);
+        conditions = Set.copyOf(conditions);
+        years = Set.copyOf(years);
+    }
+
+    /**
+     * Разбирает параметры запроса; списки значений передаются через запятую.
+     *
+     * @param brands     марки, например {@code BMW,Audi}, или {@code null}.
+     * @param conditions состояния или {@code null}.
+     * @param years      годы выпуска или {@code null}.
+     * @param priceFrom  минимальная цена или {@code null}.
+     * @param priceTo    максимальная цена или {@code null}.
+     * @return условия поиска.
+     * @throws NotFoundException если год или цена не являются числом.
+     */
+    public static CarSearch parse(String brands, String conditions, String years, String priceFrom, String priceTo) {
+        try {
+            return new CarSearch(split(brands, Function.identity()), split(conditions, Function.identity()),
+                    split(years, Integer::valueOf),
+                    priceFrom == null || priceFrom.isBlank() ? null : Double.valueOf(priceFrom),
+                    priceTo == null || priceTo.isBlank() ? null : Double.valueOf(priceTo));
+        } catch (NumberFormatException e) {
+            throw new NotFoundException("Unexpected search value: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Условие фильтра по одному столбцу в терминах поиска.
+     *
+     * @param column столбец фильтра.
+     * @param value  значение, приведенное {@link CarColumn#parse(String)}.
+     * @return условия поиска или {@code null}, если столбец не индексируется.
+     */
+    static CarSearch of(CarColumn column, Object value) {
+        return switch (column) {
+            case BRAND -> new CarSearch(Set.of((String) value), Set.of(), Set.of(), null, null);
+            case CONDITION -> new CarSearch(Set.of(), Set.of((String) value), Set.of(), null, null);
+            case YEAR -> new CarSearch(Set.of(), Set.of(), Set.of((Integer) value), null, null);
+            case PRICE -> {
+                double price = ((Number) value).doubleValue();
+                yield new CarSearch(Set.of(), Set.of(), Set.of(), price, price);
+            }
+            default -> null;
+        };
+    }
+
+    boolean matchesPrice(double price) {
+        return (priceFrom == null || price >= priceFrom) && (priceTo == null || price <= priceTo);
+    }
+
+    private static <T> Set<T> split(String values, Function<String, T> parser) {
+        if (values == null || values.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(parser)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -1,18 +1,30 @@
 package org.example.repository;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.cache.EntityCache;
+import org.example.config.ReplicaRoutingDataSource;
+import org.example.mapper.CarRowMapper;
 import org.example.model.Car;
 import org.example.util.NotFoundException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Реализация интерфейса {@link CarStorage} с использованием JDBC для работы с базой данных.
@@ -25,24 +37,53 @@ import java.util.function.Predicate;
 @Repository
 public class CarStorage {
 
-    private static final BeanPropertyRowMapper<Car> ROW_MAPPER = BeanPropertyRowMapper.newInstance(Car.class);
+    private static final RowMapper<Car> ROW_MAPPER = CarRowMapper.INSTANCE;
+    private static final String SELECT = "SELECT " + CarRowMapper.COLUMNS + " FROM car_shop.car";
+    static final String PAGE = SELECT + " WHERE car_id > ? ORDER BY car_id LIMIT ?";
+    static final String BY_ID = SELECT + " WHERE car_id = ?";
+    static final String BY_IDS = SELECT + " WHERE car_id = ANY(?) ORDER BY car_id";
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String INSERT = "INSERT INTO car_shop.car (brand, model, year, price, condition) VALUES (?, ?, ?, ?, ?)";
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final SimpleJdbcInsert insert;
+    private final EntityCache<Car> cache;
+    private final CarIndex index;
 
     /**
      * Конструктор для инициализации зависимостей класса {@link CarStorage}.
      *
      * @param jdbcTemplate               объект для выполнения SQL-запросов и обновлений.
      * @param namedParameterJdbcTemplate объект для выполнения SQL-запросов с именованными параметрами.
+     * @param cache                      кэш автомобилей по идентификатору.
+     * @param index                      индекс атрибутов автомобилей для фильтрации в памяти.
      */
-    public CarStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    public CarStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate, EntityCache<Car> cache,
+                      CarIndex index) {
         this.jdbcTemplate = jdbcTemplate;
+        this.cache = cache;
+        this.index = index;
         this.insert = new SimpleJdbcInsert(jdbcTemplate)
                 .withSchemaName("car_shop")
                 .withTableName("car")
                 .usingGeneratedKeyColumns("car_id");
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        cache.trackIds(consumer -> ReplicaRoutingDataSource.onPrimary(() ->
+                jdbcTemplate.query("SELECT car_id FROM car_shop.car", (RowCallbackHandler) resultSet ->
+                        consumer.accept(resultSet.getInt(1)))));
+        index.bind(new CarIndex.RowSource() {
+            @Override
+            public void forEach(Consumer<Car> consumer) {
+                ReplicaRoutingDataSource.onPrimary(() -> streamAll(consumer));
+            }
+
+            @Override
+            public List<Car> byIds(Collection<Integer> ids) {
+                return ReplicaRoutingDataSource.fromPrimary(() ->
+                        jdbcTemplate.query(BY_IDS, ROW_MAPPER, (Object) ids.toArray(new Integer[0])));
+            }
+        });
     }
 
     /**
@@ -51,17 +92,92 @@ public class CarStorage {
      * @return список объектов {@link Car}.
      */
     public List<Car> getAll() {
-        return jdbcTemplate.query("SELECT * FROM car_shop.car ORDER BY car_id", ROW_MAPPER);
+        return jdbcTemplate.query(SELECT + " ORDER BY car_id", ROW_MAPPER);
+    }
+
+    /**
+     * Последовательно передает все автомобили потребителю, читая их через серверный курсор.
+     * <p>
+     * В отличие от {@link #getAll()}, не создает список всех автомобилей: в памяти находится не более
+     * {@code EXPORT_FETCH_SIZE} строк, а первая строка доступна до окончания чтения таблицы.
+     * </p>
+     *
+     * @param consumer потребитель объектов {@link Car} в порядке возрастания идентификатора.
+     */
+    public void streamAll(Consumer<Car> consumer) {
+        CursorQuery.stream(jdbcTemplate, SELECT + " ORDER BY car_id", ROW_MAPPER, EXPORT_FETCH_SIZE, consumer);
+    }
+
+    /**
+     * Возвращает страницу автомобилей, следующих за указанным идентификатором.
+     * <p>
+     * Используется постраничная выборка по ключу: {@code WHERE car_id > ? ORDER BY car_id LIMIT ?},
+     * поэтому стоимость запроса не зависит от номера страницы.
+     * </p>
+     *
+     * @param after идентификатор последнего автомобиля предыдущей страницы, 0 для первой страницы.
+     * @param limit максимальное количество автомобилей на странице.
+     * @return список объектов {@link Car}, отсортированный по идентификатору.
+     */
+    public List<Car> getPage(int after, int limit) {
+        return jdbcTemplate.query(PAGE, ROW_MAPPER, after, limit);
+    }
+
+    /**
+     * Возвращает страницу автомобилей с запрошенными полями.
+     * <p>
+     * Запрос выбирает только идентификатор и столбцы проекции, строки не преобразуются в {@link Car}.
+     * </p>
+     *
+     * @param after      идентификатор последнего автомобиля предыдущей страницы, 0 для первой страницы.
+     * @param limit      максимальное количество автомобилей на странице.
+     * @param projection запрошенные поля.
+     * @return строки с запрошенными полями, отсортированные по идентификатору.
+     */
+    public List<Projection.Row> getPage(int after, int limit, Projection<CarColumn> projection) {
+        return jdbcTemplate.query(select(projection) + " WHERE car_id > ? ORDER BY car_id LIMIT ?",
+                projection.rowMapper(), after, limit);
     }
 
     /**
      * Возвращает автомобиль по его идентификатору.
+     * <p>
+     * Автомобиль читается из кэша, при промахе — из базы данных с сохранением в кэш. Запрос заведомо
+     * отсутствующего идентификатора отклоняется кэшем без обращения к базе данных.
+     * </p>
      *
      * @param id идентификатор автомобиля.
-     * @return объект {@link Car}, если автомобиль найден, иначе null.
+     * @return объект {@link Car}.
+     * @throws NotFoundException если автомобиль с указанным идентификатором не найден.
      */
     public Car getById(int id) {
-        return jdbcTemplate.queryForObject("SELECT * FROM car_shop.car WHERE car_id=?", ROW_MAPPER, id);
+        return cache.get(id, key -> {
+            Car car = DataAccessUtils.singleResult(ReplicaRoutingDataSource.fromPrimary(() ->
+                    jdbcTemplate.query(BY_ID, ROW_MAPPER, key)));
+            if (car == null) {
+                throw new NotFoundException("Car with id " + key + " not found");
+            }
+            return car;
+        });
+    }
+
+    /**
+     * Возвращает группу автомобилей по идентификаторам.
+     * <p>
+     * Автомобили, уже находящиеся в кэше, берутся из него, остальные читаются одним запросом
+     * {@code WHERE car_id = ANY(?)} и сохраняются в кэш.
+     * </p>
+     *
+     * @param ids идентификаторы.
+     * @return найденные автомобили по идентификатору; отсутствующих идентификаторов в результате нет.
+     */
+    public Map<Integer, Car> getByIds(Collection<Integer> ids) {
+        return cache.getAll(ids, missing -> {
+            Map<Integer, Car> found = new HashMap<>();
+            ReplicaRoutingDataSource.fromPrimary(() -> jdbcTemplate.query(BY_IDS, ROW_MAPPER, (Object) missing.toArray(new Integer[0])))
+                    .forEach(entity -> found.put(entity.getCar_id(), entity));
+            return found;
+        });
     }
 
     /**
@@ -85,13 +201,74 @@ public class CarStorage {
         if (car.getCar_id() == 0) {
             Number newKey = insert.executeAndReturnKey(map);
             car.setCar_id(newKey.intValue());
-        } else if (namedParameterJdbcTemplate.update("UPDATE car_shop.car set brand=:brand, model=:model, year=:year," +
-                                                     "price=:price, condition=:condition WHERE car_id=:car_id", map) == 0) {
-            return null;
+            index.reload(List.of(car.getCar_id()));
+            cache.created(car.getCar_id());
+        } else {
+            int updated = namedParameterJdbcTemplate.update("UPDATE car_shop.car set brand=:brand, model=:model, year=:year," +
+                                                            "price=:price, condition=:condition WHERE car_id=:car_id", map);
+            if (updated == 0) {
+                cache.invalidate(car.getCar_id());
+                return null;
+            }
+            index.reload(List.of(car.getCar_id()));
+            cache.invalidate(car.getCar_id());
         }
         return car;
     }
 
+    /**
+     * Добавляет список автомобилей пакетными вставками.
+     * <p>
+     * Автомобили отправляются порциями по {@code INSERT_BATCH_SIZE} через пакетное выполнение JDBC:
+     * одна порция — одно обращение к базе данных. Все порции выполняются в одной транзакции: если не удалась
+     * любая из них, не сохраняется ни один автомобиль. Сгенерированные идентификаторы устанавливаются
+     * в переданные объекты только после фиксации транзакции.
+     * </p>
+     *
+     * @param cars список объектов {@link Car} без идентификаторов.
+     * @return идентификаторы созданных автомобилей в порядке следования в {@code cars}.
+     */
+    public List<Integer> saveAll(List<Car> cars) {
+        List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            List<Integer> generated = new ArrayList<>(cars.size());
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"car_id"})) {
+                for (int from = 0; from < cars.size(); from += INSERT_BATCH_SIZE) {
+                    List<Car> chunk = cars.subList(from, Math.min(from + INSERT_BATCH_SIZE, cars.size()));
+                    for (Car car : chunk) {
+                        statement.setString(1, car.getBrand());
+                        statement.setString(2, car.getModel());
+                        statement.setInt(3, car.getYear());
+                        statement.setDouble(4, car.getPrice());
+                        statement.setString(5, car.getCondition());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            keys.next();
+                            generated.add(keys.getInt(1));
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return generated;
+        });
+        for (int i = 0; i < cars.size(); i++) {
+            cars.get(i).setCar_id(ids.get(i));
+        }
+        index.reload(ids);
+        cache.createdAll(ids);
+        return ids;
+    }
+
     /**
      * Удаляет автомобиль из базы данных по его идентификатору.
      *
@@ -100,6 +277,8 @@ public class CarStorage {
      */
     public void delete(int id) {
         int count = jdbcTemplate.update("DELETE FROM car_shop.car WHERE car_id=?", id);
+        index.reload(List.of(id));
+        cache.removed(id);
         if (count == 0) {
             throw new NotFoundException("Car with id " + id + " not found");
         }
@@ -107,20 +286,136 @@ public class CarStorage {
 
 
     /**
-     * Фильтрует автомобили на основе заданного критерия.
+     * Фильтрует автомобили по значению столбца на стороне базы данных.
      * <p>
-     * Метод принимает функцию для получения значения из объекта автомобиля и предикат для проверки этого значения.
-     * Возвращает список автомобилей, удовлетворяющих предикату.
+     * Условие передается в запрос как {@code WHERE <столбец> = ?}, поэтому из базы данных
+     * выбираются только подходящие строки.
      * </p>
      *
-     * @param getter    функция для извлечения значения из объекта {@link Car}.
-     * @param predicate предикат для фильтрации значений.
-     * @param <T>       тип значения, возвращаемого функцией getter.
-     * @return список объектов {@link Car}, удовлетворяющих условию предиката.
+     * @param column столбец из белого списка {@link CarColumn}.
+     * @param value  значение для сравнения, приведенное к типу столбца.
+     * @return список объектов {@link Car}, у которых значение столбца равно {@code value}.
      */
-    public <T> List<Car> filter(Function<Car, T> getter, Predicate<T> predicate) {
-        List<Car> cars = getAll();
-        return cars.stream().filter(car -> predicate.test(getter.apply(car))).toList();
+    public List<Car> filter(CarColumn column, Object value) {
+        CarSearch search = CarSearch.of(column, value);
+        List<Car> found = search == null ? null : index.search(search);
+        return found != null ? found : jdbcTemplate.query(filterQuery(column), ROW_MAPPER, value);
+    }
+
+    /**
+     * Фильтрует автомобили по значению столбца и возвращает только запрошенные поля.
+     * <p>
+     * Строки берутся из индекса в памяти, а пока он не построен — запросом, выбирающим только столбцы проекции.
+     * </p>
+     *
+     * @param column     столбец из белого списка {@link CarColumn}.
+     * @param value      значение для сравнения, приведенное к типу столбца.
+     * @param projection запрошенные поля.
+     * @return строки с запрошенными полями в порядке идентификатора.
+     */
+    public List<Projection.Row> filter(CarColumn column, Object value, Projection<CarColumn> projection) {
+        CarSearch search = CarSearch.of(column, value);
+        List<Car> found = search == null ? null : index.search(search);
+        return found != null ? project(found, projection)
+                : jdbcTemplate.query(select(projection) + " WHERE " + column.getColumn() + " = ? ORDER BY car_id",
+                projection.rowMapper(), value);
+    }
+
+    /**
+     * Ищет автомобили по нескольким атрибутам.
+     * <p>
+     * Поиск выполняется по индексу {@link CarIndex} в памяти, а пока индекс не построен — запросом к базе данных.
+     * </p>
+     *
+     * @param search условия поиска.
+     * @return автомобили, удовлетворяющие условиям, в порядке идентификатора.
+     */
+    public List<Car> search(CarSearch search) {
+        List<Car> found = index.search(search);
+        return found != null ? found : searchInDatabase(search);
+    }
+
+    /**
+     * Ищет автомобили по нескольким атрибутам и возвращает только запрошенные поля.
+     *
+     * @param search     условия поиска.
+     * @param projection запрошенные поля.
+     * @return строки с запрошенными полями в порядке идентификатора.
+     */
+    public List<Projection.Row> search(CarSearch search, Projection<CarColumn> projection) {
+        List<Car> found = index.search(search);
+        if (found != null) {
+            return project(found, projection);
+        }
+        List<Object> args = new ArrayList<>();
+        String where = where(search, args);
+        return jdbcTemplate.query(select(projection) + where + " ORDER BY car_id", projection.rowMapper(), args.toArray());
+    }
+
+    /**
+     * Ищет автомобили по нескольким атрибутам запросом к базе данных, минуя индекс.
+     *
+     * @param search условия поиска.
+     * @return автомобили, удовлетворяющие условиям, в порядке идентификатора.
+     */
+    public List<Car> searchInDatabase(CarSearch search) {
+        List<Object> args = new ArrayList<>();
+        String where = where(search, args);
+        return jdbcTemplate.query(SELECT + where + " ORDER BY car_id", ROW_MAPPER, args.toArray());
+    }
+
+    private static String where(CarSearch search, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (!search.brands().isEmpty()) {
+            conditions.add("brand = ANY(?)");
+            args.add(search.brands().toArray(new String[0]));
+        }
+        if (!search.conditions().isEmpty()) {
+            conditions.add("condition = ANY(?)");
+            args.add(search.conditions().toArray(new String[0]));
+        }
+        if (!search.years().isEmpty()) {
+            conditions.add("year = ANY(?)");
+            args.add(search.years().toArray(new Integer[0]));
+        }
+        if (search.priceFrom() != null) {
+            conditions.add("price >= ?");
+            args.add(search.priceFrom());
+        }
+        if (search.priceTo() != null) {
+            conditions.add("price <= ?");
+            args.add(search.priceTo());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String select(Projection<CarColumn> projection) {
+        return "SELECT " + projection.select("car_id") + " FROM car_shop.car";
+    }
+
+    private static List<Projection.Row> project(List<Car> cars, Projection<CarColumn> projection) {
+        return cars.stream().map(car -> projection.row(car.getCar_id(), column -> column.extract(car))).toList();
+    }
+
+    /**
+     * Очищает кэш автомобилей после изменения таблицы в обход этого хранилища.
+     */
+    public void invalidateCache() {
+        index.reset();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Возвращает тег версии таблицы автомобилей, меняющийся при каждом изменении через хранилище на любом узле.
+     *
+     * @return тег для заголовка {@code ETag} или {@code null}, если таблица изменилась только что.
+     */
+    public String etag() {
+        return cache.etag();
+    }
+
+    static String filterQuery(CarColumn column) {
+        return SELECT + " WHERE " + column.getColumn() + " = ? ORDER BY car_id";
     }
 
 }
@@ -0,0 +1,129 @@
+package org.example.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Массовая выгрузка и загрузка таблиц {@code car_shop} в формате CSV через {@code COPY} PostgreSQL.
+ * <p>
+ * Данные передаются между потоком и сервером через copy API драйвера PostgreSQL без промежуточной
+ * буферизации всей таблицы в памяти. Первая строка CSV содержит заголовок со списком столбцов {@link CopyTable}.
+ * </p>
+ */
+@Slf4j
+@Repository
+public class CopyStorage {
+    private static final String SEQUENCE = """
+            SELECT COALESCE(pg_get_serial_sequence(?, ?),
+                            (SELECT substring(pg_get_expr(d.adbin, d.adrelid) FROM 'nextval\\(''([^'']+)''')
+                             FROM pg_attrdef d
+                             JOIN pg_attribute a ON a.attrelid = d.adrelid AND a.attnum = d.adnum
+                             WHERE d.adrelid = ?::regclass AND a.attname = ?))""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CopyStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Выгружает таблицу в поток в формате CSV.
+     *
+     * @param table таблица для выгрузки.
+     * @param out   поток, в который записываются строки CSV.
+     * @return количество выгруженных строк.
+     * @throws UncheckedIOException если не удалось записать данные в поток.
+     */
+    public long exportTable(CopyTable table, OutputStream out) {
+        String sql = "COPY " + table.getTable() + " (" + table.getColumns() + ") TO STDOUT WITH (FORMAT csv, HEADER true)";
+        long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return copyManager(connection).copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Exported {} rows from {}", rows, table.getTable());
+        return rows;
+    }
+
+    /**
+     * Загружает строки CSV из потока в таблицу и выравнивает последовательность идентификаторов
+     * по максимальному загруженному значению.
+     * <p>
+     * Загрузка и выравнивание выполняются в одной транзакции. Последовательность определяется по владельцу
+     * ({@code pg_get_serial_sequence}), а если столбец ей не владеет — по выражению {@code nextval(...)}
+     * в значении по умолчанию столбца. Если идентификаторы не выдаются последовательностью, загрузка отменяется:
+     * иначе следующая вставка получила бы уже занятый идентификатор.
+     * </p>
+     *
+     * @param table таблица для загрузки.
+     * @param in    поток со строками CSV, включая строку заголовка.
+     * @return количество загруженных строк.
+     * @throws UncheckedIOException  если не удалось прочитать данные из потока.
+     * @throws IllegalStateException если у столбца идентификатора нет последовательности.
+     */
+    public long importTable(CopyTable table, InputStream in) {
+        String sql = "COPY " + table.getTable() + " (" + table.getColumns() + ") FROM STDIN WITH (FORMAT csv, HEADER true)";
+        long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long copied = copyManager(connection).copyIn(sql, in);
+                String sequence = sequence(connection, table);
+                String id = table.getIdColumn();
+                try (PreparedStatement statement = connection.prepareStatement("SELECT setval(?::regclass, GREATEST(MAX("
+                                                                               + id + "), 1), MAX(" + id + ") IS NOT NULL) FROM " + table.getTable())) {
+                    statement.setString(1, sequence);
+                    statement.execute();
+                }
+                connection.commit();
+                return copied;
+            } catch (IOException e) {
+                connection.rollback();
+                throw new UncheckedIOException(e);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+        log.info("Imported {} rows into {}", rows, table.getTable());
+        return rows;
+    }
+
+    private static String sequence(Connection connection, CopyTable table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SEQUENCE)) {
+            statement.setString(1, table.getTable());
+            statement.setString(2, table.getIdColumn());
+            statement.setString(3, table.getTable());
+            statement.setString(4, table.getIdColumn());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                String sequence = resultSet.next() ? resultSet.getString(1) : null;
+                if (sequence == null) {
+                    throw new IllegalStateException("Column " + table.getTable() + "." + table.getIdColumn()
+                                                    + " is not backed by a sequence, ids after import cannot be aligned");
+                }
+                return sequence;
+            }
+        }
+    }
+
+    private static CopyManager copyManager(Connection connection) throws SQLException {
+        return connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+}
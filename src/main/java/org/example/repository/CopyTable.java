@@ -0,0 +1,53 @@
+package org.example.repository;
+
+import lombok.Getter;
+import org.example.mapper.CarRowMapper;
+import org.example.mapper.OrderRowMapper;
+import org.example.mapper.UserRowMapper;
+import org.example.util.NotFoundException;
+
+/**
+ * Таблицы схемы {@code car_shop}, доступные для массовой выгрузки и загрузки через {@code COPY}.
+ * <p>
+ * Для каждой таблицы задан явный список столбцов, поэтому формат CSV не зависит от порядка
+ * столбцов в базе данных, столбец идентификатора, по которому после загрузки выравнивается последовательность,
+ * и имя кэша, который нужно очистить после загрузки.
+ * </p>
+ */
+@Getter
+public enum CopyTable {
+    CAR("car", "car_shop.car", CarRowMapper.COLUMNS, "car_id", "car"),
+    ORDERS("orders", "car_shop.orders", OrderRowMapper.COLUMNS, "order_id", "order"),
+    USER("user", "car_shop.user", UserRowMapper.COLUMNS, "user_id", "user"),
+    USER_ROLES("user_roles", "car_shop.user_roles", "role_id, user_id, role", "role_id", "role");
+
+    private final String parameter;
+    private final String table;
+    private final String columns;
+    private final String idColumn;
+    private final String cache;
+
+    CopyTable(String parameter, String table, String columns, String idColumn, String cache) {
+        this.parameter = parameter;
+        this.table = table;
+        this.columns = columns;
+        this.idColumn = idColumn;
+        this.cache = cache;
+    }
+
+    /**
+     * Находит таблицу по ее имени без схемы.
+     *
+     * @param parameter имя таблицы, например {@code car}.
+     * @return соответствующая таблица.
+     * @throws NotFoundException если таблица не поддерживается.
+     */
+    public static CopyTable of(String parameter) {
+        for (CopyTable table : values()) {
+            if (table.parameter.equals(parameter)) {
+                return table;
+            }
+        }
+        throw new NotFoundException("Unexpected table: " + parameter);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение результата запроса через серверный курсор PostgreSQL.
+ * <p>
+ * Драйвер PostgreSQL использует курсор и читает строки порциями по {@code fetchSize} только вне режима
+ * автофиксации, поэтому запрос выполняется в отдельной транзакции на время чтения. Каждая строка
+ * передается потребителю сразу после чтения, и в памяти одновременно находится не более одной порции.
+ * </p>
+ */
+final class CursorQuery {
+
+    private CursorQuery() {
+    }
+
+    /**
+     * Выполняет запрос и передает каждую прочитанную строку потребителю.
+     *
+     * @param jdbcTemplate объект для получения соединения.
+     * @param sql          SQL-запрос без параметров.
+     * @param rowMapper    преобразователь строки результата в объект.
+     * @param fetchSize    количество строк, читаемых с сервера за одно обращение.
+     * @param consumer     потребитель прочитанных объектов.
+     * @param <T>          тип объекта.
+     */
+    static <T> void stream(JdbcTemplate jdbcTemplate, String sql, RowMapper<T> rowMapper, int fetchSize,
+                           Consumer<? super T> consumer) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    int rowNum = 0;
+                    while (resultSet.next()) {
+                        consumer.accept(rowMapper.mapRow(resultSet, rowNum++));
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.repository;
+
+import lombok.Getter;
+import org.example.util.NotFoundException;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Столбцы таблицы {@code car_shop.orders}, по которым допускается фильтрация и выборка заказов.
+ * <p>
+ * Устроено так же, как {@link CarColumn}: значение {@code name-filter} сопоставляется с именем столбца
+ * и функцией разбора значения фильтра, а имя свойства {@link org.example.dto.OrderDTO} — со столбцом
+ * в {@link Projection}.
+ * </p>
+ */
+@Getter
+public enum OrderColumn implements Projection.Column {
+    USER_ID("user-id", "userId", "user_id", Integer::valueOf, ResultSet::getInt),
+    CAR_ID("car-id", "carId", "car_id", Integer::valueOf, ResultSet::getInt),
+    DATE("date", "date", "date", LocalDate::parse, (resultSet, index) -> resultSet.getObject(index, LocalDate.class)),
+    STATUS("status", "status", "status", String::valueOf, ResultSet::getString);
+
+    private final String parameter;
+    private final String property;
+    private final String column;
+    private final Function<String, ?> parser;
+    private final Projection.Reader reader;
+
+    OrderColumn(String parameter, String property, String column, Function<String, ?> parser, Projection.Reader reader) {
+        this.parameter = parameter;
+        this.property = property;
+        this.column = column;
+        this.parser = parser;
+        this.reader = reader;
+    }
+
+    /**
+     * Преобразует строковое значение фильтра в тип столбца.
+     *
+     * @param value значение из параметра запроса.
+     * @return значение, пригодное для передачи в качестве параметра SQL-запроса.
+     */
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    /**
+     * Находит столбец по значению параметра {@code name-filter}.
+     *
+     * @param parameter значение параметра запроса.
+     * @return соответствующий столбец.
+     * @throws NotFoundException если столбец отсутствует в белом списке.
+     */
+    public static OrderColumn of(String parameter) {
+        for (OrderColumn column : values()) {
+            if (column.parameter.equals(parameter)) {
+                return column;
+            }
+        }
+        throw new NotFoundException("Unexpected value: " + parameter);
+    }
+}
@@ -1,19 +1,27 @@
 package org.example.repository;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.cache.EntityCache;
+import org.example.config.ReplicaRoutingDataSource;
+import org.example.mapper.OrderRowMapper;
 import org.example.model.Order;
+import org.example.util.ConflictException;
 import org.example.util.NotFoundException;
 import org.springframework.dao.support.DataAccessUtils;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Реализация интерфейса {@link OrderStorage} с использованием JDBC.
@@ -25,10 +33,17 @@ import java.util.function.Predicate;
 @Slf4j
 @Repository
 public class OrderStorage {
-    private static final BeanPropertyRowMapper<Order> ROW_MAPPER = BeanPropertyRowMapper.newInstance(Order.class);
+    private static final RowMapper<Order> ROW_MAPPER = OrderRowMapper.INSTANCE;
+    private static final String SELECT = "SELECT " + OrderRowMapper.COLUMNS + " FROM car_shop.orders";
+    static final String PAGE = SELECT + " WHERE order_id > ? ORDER BY order_id LIMIT ?";
+    static final String BY_ID = SELECT + " WHERE order_id = ?";
+    static final String BY_IDS = SELECT + " WHERE order_id = ANY(?) ORDER BY order_id";
+    static final String BY_USERS = SELECT + " WHERE user_id = ANY(?) ORDER BY order_id";
+    private static final int EXPORT_FETCH_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     private final SimpleJdbcInsert insert;
+    private final EntityCache<Order> cache;
 
     /**
      * Конструктор класса {@link OrderStorage}.
@@ -38,14 +53,19 @@ public class OrderStorage {
      *
      * @param jdbcTemplate {@link JdbcTemplate} для выполнения SQL-запросов.
      * @param namedParameterJdbcTemplate {@link NamedParameterJdbcTemplate} для выполнения SQL-запросов с именованными параметрами.
+     * @param cache Кэш заказов по идентификатору.
      */
-    public OrderStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    public OrderStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate, EntityCache<Order> cache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.cache = cache;
         insert = new SimpleJdbcInsert(jdbcTemplate)
                 .withSchemaName("car_shop")
                 .withTableName("orders")
                 .usingGeneratedKeyColumns("order_id");
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        cache.trackIds(consumer -> ReplicaRoutingDataSource.onPrimary(() ->
+                jdbcTemplate.query("SELECT order_id FROM car_shop.orders", (RowCallbackHandler) resultSet ->
+                        consumer.accept(resultSet.getInt(1)))));
     }
 
     /**
@@ -61,6 +81,7 @@ public class OrderStorage {
                 .addValue("status", order.getStatus());
         Number newId = insert.executeAndReturnKey(source);
         order.setOrderId(newId.intValue());
+        cache.created(order.getOrderId());
     }
 
     /**
@@ -69,7 +90,43 @@ public class OrderStorage {
      * @return Список всех заказов {@link Order}.
      */
     public List<Order> getAll() {
-        return jdbcTemplate.query("SELECT * FROM car_shop.orders ORDER BY order_id", ROW_MAPPER);
+        return jdbcTemplate.query(SELECT + " ORDER BY order_id", ROW_MAPPER);
+    }
+
+    /**
+     * Последовательно передает все заказы потребителю, читая их через серверный курсор.
+     *
+     * @param consumer Потребитель заказов {@link Order} в порядке возрастания идентификатора.
+     */
+    public void streamAll(Consumer<Order> consumer) {
+        CursorQuery.stream(jdbcTemplate, SELECT + " ORDER BY order_id", ROW_MAPPER, EXPORT_FETCH_SIZE, consumer);
+    }
+
+    /**
+     * Возвращает страницу заказов, следующих за указанным идентификатором заказа.
+     *
+     * @param after Идентификатор последнего заказа предыдущей страницы, 0 для первой страницы.
+     * @param limit Максимальное количество заказов на странице.
+     * @return Список заказов {@link Order}, отсортированный по идентификатору.
+     */
+    public List<Order> getPage(int after, int limit) {
+        return jdbcTemplate.query(PAGE, ROW_MAPPER, after, limit);
+    }
+
+    /**
+     * Возвращает страницу заказов с запрошенными полями.
+     * <p>
+     * Запрос выбирает только идентификатор и столбцы проекции, строки не преобразуются в {@link Order}.
+     * </p>
+     *
+     * @param after      идентификатор последней записи предыдущей страницы, 0 для первой страницы.
+     * @param limit      максимальное количество записей на странице.
+     * @param projection запрошенные поля.
+     * @return строки с запрошенными полями, отсортированные по идентификатору.
+     */
+    public List<Projection.Row> getPage(int after, int limit, Projection<OrderColumn> projection) {
+        return jdbcTemplate.query(select(projection) + " WHERE order_id > ? ORDER BY order_id LIMIT ?",
+                projection.rowMapper(), after, limit);
     }
 
     /**
@@ -83,12 +140,51 @@ public class OrderStorage {
      * @throws NotFoundException если заказ с указанным идентификатором не найден.
      */
     public Order getById(int id) {
-        List<Order> orders = jdbcTemplate.query("SELECT * FROM car_shop.orders where order_id=?", ROW_MAPPER, id);
-        Order order = DataAccessUtils.singleResult(orders);
-        if (order == null) {
-            throw new NotFoundException("Order with id " + id + " not found");
+        return cache.get(id, key -> {
+            Order order = DataAccessUtils.singleResult(ReplicaRoutingDataSource.fromPrimary(() ->
+                    jdbcTemplate.query(BY_ID, ROW_MAPPER, key)));
+            if (order == null) {
+                throw new NotFoundException("Order with id " + key + " not found");
+            }
+            return order;
+        });
+    }
+
+    /**
+     * Возвращает группу заказов по идентификаторам.
+     * <p>
+     * Заказы, уже находящиеся в кэше, берутся из него, остальные читаются одним запросом
+     * {@code WHERE order_id = ANY(?)} и сохраняются в кэш.
+     * </p>
+     *
+     * @param ids идентификаторы.
+     * @return найденные заказы по идентификатору; отсутствующих идентификаторов в результате нет.
+     */
+    public Map<Integer, Order> getByIds(Collection<Integer> ids) {
+        return cache.getAll(ids, missing -> {
+            Map<Integer, Order> found = new HashMap<>();
+            ReplicaRoutingDataSource.fromPrimary(() -> jdbcTemplate.query(BY_IDS, ROW_MAPPER, (Object) missing.toArray(new Integer[0])))
+                    .forEach(entity -> found.put(entity.getOrderId(), entity));
+            return found;
+        });
+    }
+
+    /**
+     * Возвращает заказы группы пользователей одним запросом {@code WHERE user_id = ANY(?)}.
+     *
+     * @param userIds Идентификаторы пользователей.
+     * @return Заказы {@link Order}, сгруппированные по идентификатору пользователя и упорядоченные по идентификатору заказа.
+     */
+    public Map<Integer, List<Order>> getByUserIds(Collection<Integer> userIds) {
+        Map<Integer, List<Order>> orders = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return orders;
         }
-        return order;
+        jdbcTemplate.query(BY_USERS, (RowCallbackHandler) rs -> {
+            Order order = ROW_MAPPER.mapRow(rs, 0);
+            orders.computeIfAbsent(order.getUserId(), id -> new ArrayList<>()).add(order);
+        }, (Object) userIds.toArray(new Integer[0]));
+        return orders;
     }
 
     /**
@@ -96,58 +192,143 @@ public class OrderStorage {
      *
      * @param id Идентификатор заказа.
      * @param status Новый статус заказа.
+     * @throws NotFoundException если заказ с указанным идентификатором не найден.
      */
     public void changeStatus(int id, String status) {
-        updateOrder(id, status);
+        changeStatus(id, status, null);
+    }
+
+    /**
+     * Изменяет статус заказа одним условным запросом {@code UPDATE ... RETURNING}.
+     * <p>
+     * Если указан ожидаемый статус, заказ обновляется только при совпадении текущего статуса с ожидаемым,
+     * что исключает потерю параллельного изменения. Дополнительный запрос выполняется только при неудаче,
+     * чтобы отличить отсутствующий заказ от заказа в другом статусе.
+     * </p>
+     *
+     * @param id Идентификатор заказа.
+     * @param status Новый статус заказа.
+     * @param expectedStatus Ожидаемый текущий статус или {@code null}, если переход допустим из любого статуса.
+     * @return Заказ {@link Order} после изменения.
+     * @throws NotFoundException если заказ с указанным идентификатором не найден.
+     * @throws ConflictException если текущий статус заказа не совпадает с ожидаемым.
+     */
+    public Order changeStatus(int id, String status, String expectedStatus) {
+        MapSqlParameterSource source = new MapSqlParameterSource()
+                .addValue("order_id", id)
+                .addValue("status", status)
+                .addValue("expected_status", expectedStatus);
+        List<Order> updated = namedParameterJdbcTemplate.query("UPDATE car_shop.orders SET status=:status WHERE order_id=:order_id"
+                                                               + (expectedStatus == null ? "" : " AND status=:expected_status")
+                                                               + " RETURNING " + OrderRowMapper.COLUMNS, source, ROW_MAPPER);
+        Order order = DataAccessUtils.singleResult(updated);
+        if (order == null) {
+            if (expectedStatus != null && exists(id)) {
+                throw new ConflictException("Order with id " + id + " is not in status " + expectedStatus);
+            }
+            log.error("Not found order with id {}", id);
+            throw new NotFoundException("Order with id " + id + " not found");
+        }
+        cache.put(id, order);
+        return order;
+    }
+
+    /**
+     * Изменяет статус списка заказов одним запросом {@code WHERE order_id = ANY(?)}.
+     *
+     * @param ids Идентификаторы заказов.
+     * @param status Новый статус заказов.
+     * @param expectedStatus Ожидаемый текущий статус или {@code null}, если переход допустим из любого статуса.
+     * @return Идентификаторы фактически измененных заказов.
+     */
+    public List<Integer> changeStatus(Collection<Integer> ids, String status, String expectedStatus) {
+        return bulkChangeStatus("order_id = ANY(?)", ids.toArray(new Integer[0]), status, expectedStatus);
+    }
+
+    /**
+     * Изменяет статус всех заказов, удовлетворяющих фильтру, одним запросом.
+     *
+     * @param column Столбец из белого списка {@link OrderColumn}.
+     * @param value Значение для сравнения, приведенное к типу столбца.
+     * @param status Новый статус заказов.
+     * @param expectedStatus Ожидаемый текущий статус или {@code null}, если переход допустим из любого статуса.
+     * @return Идентификаторы фактически измененных заказов.
+     */
+    public List<Integer> changeStatus(OrderColumn column, Object value, String status, String expectedStatus) {
+        return bulkChangeStatus(column.getColumn() + " = ?", value, status, expectedStatus);
     }
 
     /**
      * Отменяет заказ по его идентификатору, устанавливая статус "canceled".
      *
      * @param id Идентификатор заказа.
+     * @throws NotFoundException если заказ с указанным идентификатором не найден.
      */
     public void canceled(int id) {
-        updateOrder(id, "canceled");
+        changeStatus(id, "canceled", null);
     }
 
     /**
-     * Фильтрует заказы по заданному критерию.
-     * <p>
-     * Этот метод возвращает список заказов, которые соответствуют условию, заданному предикатом {@link Predicate}.
-     * </p>
+     * Фильтрует заказы по значению столбца на стороне базы данных.
      *
-     * @param getter Функция для получения значения, по которому будет проводиться фильтрация.
-     * @param predicate Предикат для фильтрации значений.
-     * @param <T> Тип значения для фильтрации.
+     * @param column Столбец из белого списка {@link OrderColumn}.
+     * @param value Значение для сравнения, приведенное к типу столбца.
      * @return Список отфильтрованных заказов {@link Order}.
      */
-    public <T> List<Order> filter(Function<Order, T> getter, Predicate<T> predicate) {
+    public List<Order> filter(OrderColumn column, Object value) {
         log.info("Get all find orders");
-        return getAll().stream().filter(user -> predicate.test(getter.apply(user))).toList();
+        return jdbcTemplate.query(filterQuery(column), ROW_MAPPER, value);
     }
 
     /**
-     * Обновляет информацию о заказе по его идентификатору.
-     * <p>
-     * Метод изменяет статус заказа, а также остальные поля, если они указаны.
-     * </p>
+     * Фильтрует заказов по значению столбца и возвращает только запрошенные поля.
      *
-     * @param id Идентификатор заказа.
-     * @param status Новый статус заказа.
+     * @param column     столбец из белого списка {@link OrderColumn}.
+     * @param value      значение для сравнения, приведенное к типу столбца.
+     * @param projection запрошенные поля.
+     * @return строки с запрошенными полями в порядке идентификатора.
      */
-    private void updateOrder(int id, String status) {
-        Order updateOrder = getById(id);
-        MapSqlParameterSource source = new MapSqlParameterSource()
-                .addValue("order_id", id)
-                .addValue("user_id", updateOrder.getUserId())
-                .addValue("car_id", updateOrder.getCarId())
-                .addValue("date", updateOrder.getDate())
-                .addValue("status", status);
-        if (namedParameterJdbcTemplate.update("UPDATE car_shop.orders set user_id=:user_id, car_id=:car_id," +
-                                              "date=:date, status=:status WHERE order_id=:order_id", source) == 0) {
-            log.error("Not found order with id {}", id);
-            throw new NotFoundException("Id такого пользователя не существует");
-        }
+    public List<Projection.Row> filter(OrderColumn column, Object value, Projection<OrderColumn> projection) {
+        return jdbcTemplate.query(select(projection) + " WHERE " + column.getColumn() + " = ? ORDER BY order_id",
+                projection.rowMapper(), value);
+    }
+
+    /**
+     * Очищает кэш заказов после изменения таблицы в обход этого хранилища.
+     */
+    public void invalidateCache() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Возвращает тег версии таблицы заказов, меняющийся при каждом изменении через хранилище на любом узле.
+     *
+     * @return тег для заголовка {@code ETag} или {@code null}, если таблица изменилась только что.
+     */
+    public String etag() {
+        return cache.etag();
+    }
+
+    private List<Integer> bulkChangeStatus(String condition, Object value, String status, String expectedStatus) {
+        String sql = "UPDATE car_shop.orders SET status = ? WHERE " + condition;
+        List<Integer> updated = expectedStatus == null
+                ? jdbcTemplate.queryForList(sql + " RETURNING order_id", Integer.class, status, value)
+                : jdbcTemplate.queryForList(sql + " AND status = ? RETURNING order_id", Integer.class, status, value, expectedStatus);
+        cache.invalidateAll(updated);
+        return updated;
+    }
+
+    private boolean exists(int id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM car_shop.orders WHERE order_id=?)", Boolean.class, id));
+    }
+
+    private static String select(Projection<OrderColumn> projection) {
+        return "SELECT " + projection.select("order_id") + " FROM car_shop.orders";
+    }
+
+    static String filterQuery(OrderColumn column) {
+        return SELECT + " WHERE " + column.getColumn() + " = ? ORDER BY order_id";
     }
 
 }
@@ -0,0 +1,153 @@
+package org.example.repository;
+
+import org.example.util.NotFoundException;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Набор полей, запрошенных параметром {@code fields}, например {@code ?fields=brand,model,price}.
+ * <p>
+ * Поля выбираются из белого списка столбцов ({@link CarColumn}, {@link OrderColumn}, {@link UserColumn}) по имени
+ * свойства в ответе. Запрос к базе данных выбирает только эти столбцы и идентификатор, строка результата читается
+ * сразу в {@link Row} без создания сущности и DTO, а в ответ попадают только запрошенные свойства в указанном порядке.
+ * </p>
+ *
+ * @param columns запрошенные столбцы без повторов.
+ * @param <C>     перечисление столбцов таблицы.
+ */
+public record Projection<C extends Enum<C> & Projection.Column>(List<C> columns) {
+
+    public Projection {
+        columns = List.copyOf(columns);
+    }
+
+    /**
+     * Столбец, который можно запросить в параметре {@code fields}.
+     */
+    public interface Column {
+        /**
+         * @return имя свойства в ответе.
+         */
+        String getProperty();
+
+        /**
+         * @return имя столбца в базе данных.
+         */
+        String getColumn();
+
+        /**
+         * @return способ чтения значения столбца из результата запроса.
+         */
+        Reader getReader();
+    }
+
+    /**
+     * Чтение значения столбца из результата запроса по номеру.
+     */
+    @FunctionalInterface
+    public interface Reader {
+        Object read(ResultSet resultSet, int index) throws SQLException;
+    }
+
+    /**
+     * Строка с запрошенными свойствами.
+     *
+     * @param id     идентификатор записи, используется для курсора страницы и в ответ не попадает.
+     * @param values значения свойств в порядке запроса.
+     */
+    public record Row(int id, Map<String, Object> values) {
+    }
+
+    /**
+     * Разбирает параметр {@code fields}; имена полей передаются через запятую.
+     *
+     * @param type   перечисление столбцов таблицы.
+     * @param fields значение параметра или {@code null}.
+     * @param <C>    перечисление столбцов таблицы.
+     * @return набор полей или {@code null}, если параметр не задан и нужно полное представление.
+     * @throws NotFoundException если поле отсутствует в белом списке.
+     */
+    public static <C extends Enum<C> & Column> Projection<C> parse(Class<C> type, String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<C> columns = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!name.isEmpty()) {
+                columns.add(find(type, name));
+            }
+        }
+        return columns.isEmpty() ? null : new Projection<>(new ArrayList<>(columns));
+    }
+
+    /**
+     * Возвращает значения строк для тела ответа.
+     *
+     * @param rows строки с запрошенными свойствами.
+     * @return значения свойств каждой строки.
+     */
+    public static List<Map<String, Object>> values(List<Row> rows) {
+        return rows.stream().map(Row::values).toList();
+    }
+
+    /**
+     * Формирует список выбираемых столбцов: идентификатор и запрошенные столбцы.
+     *
+     * @param key столбец идентификатора.
+     * @return список столбцов для {@code SELECT}.
+     */
+    String select(String key) {
+        return key + columns.stream().map(column -> ", " + column.getColumn()).collect(Collectors.joining());
+    }
+
+    /**
+     * Создает преобразователь строки запроса, выбравшего столбцы в порядке {@link #select(String)}.
+     *
+     * @return преобразователь строки результата в {@link Row}.
+     */
+    RowMapper<Row> rowMapper() {
+        return (resultSet, rowNum) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                C column = columns.get(i);
+                values.put(column.getProperty(), column.getReader().read(resultSet, i + 2));
+            }
+            return new Row(resultSet.getInt(1), values);
+        };
+    }
+
+    /**
+     * Создает строку из значений, уже находящихся в памяти.
+     *
+     * @param id    идентификатор записи.
+     * @param value значение столбца записи.
+     * @return строка с запрошенными свойствами.
+     */
+    Row row(int id, Function<C, Object> value) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (C column : columns) {
+            values.put(column.getProperty(), value.apply(column));
+        }
+        return new Row(id, values);
+    }
+
+    private static <C extends Enum<C> & Column> C find(Class<C> type, String property) {
+        for (C column : type.getEnumConstants()) {
+            if (column.getProperty().equals(property)) {
+                return column;
+            }
+        }
+        throw new NotFoundException("Unexpected field: " + property);
+    }
+}
@@ -1,28 +1,58 @@
 package org.example.repository;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.cache.InvalidationPublisher;
+import org.example.cache.InvalidationTarget;
+import org.example.config.ReplicaRoutingDataSource;
+import org.example.mapper.RoleRowMapper;
 import org.example.model.Roles;
 import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Реализация интерфейса {@link RoleStorage} для управления данными ролей пользователей в базе данных с использованием JDBC.
  * <p>
  * Этот класс предоставляет методы для получения ролей пользователя по его идентификатору.
  * </p>
+ * <p>
+ * Роли читаются почти при каждой проверке доступа и меняются редко, поэтому хранятся в кэше в виде битовой маски
+ * порядковых номеров {@link Roles} на пользователя. Отсутствие ролей тоже кэшируется (маска 0). Код, изменяющий
+ * таблицу {@code car_shop.user_roles}, должен вызвать {@link #invalidate(int)} или {@link #invalidateAll()}.
+ * </p>
+ * <p>
+ * Кэш не имеет срока жизни, поэтому промахи всегда читаются с основной базы, даже внутри методов {@code @ReadOnly}:
+ * роли из отстающей реплики остались бы в кэше до следующей явной инвалидации.
+ * </p>
  */
 @Repository
 @Slf4j
-public class RoleStorage {
+public class RoleStorage implements InvalidationTarget {
 
-    private static final BeanPropertyRowMapper<Roles> ROW_MAPPER = BeanPropertyRowMapper.newInstance(Roles.class);
+    private static final RowMapper<Roles> ROW_MAPPER = RoleRowMapper.INSTANCE;
+    private static final Roles[] ROLES = Roles.values();
+    private static final int MAX_CACHED_USERS = 100_000;
+    static final String BY_USER = "SELECT role FROM car_shop.user_roles WHERE user_id = ?";
+    static final String BY_USERS = "SELECT user_id, role FROM car_shop.user_roles WHERE user_id = ANY(?)";
     private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, Integer> masks = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile InvalidationPublisher publisher = InvalidationPublisher.LOCAL;
 
     public RoleStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
@@ -32,8 +62,8 @@ public class RoleStorage {
      * Получает набор ролей для пользователя по его идентификатору.
      *
      * <p>
-     * Метод выполняет запрос к базе данных для получения списка ролей пользователя, используя идентификатор пользователя.
-     * Роли преобразуются в перечисление {@code Roles} и возвращаются в виде {@code Set}. Если роль не распознана, она будет пропущена.
+     * При промахе кэша роли читаются из базы данных, нераспознанные названия ролей пропускаются.
+     * Возвращается новый {@link EnumSet}, который вызывающий код может изменять.
      * </p>
      *
      * @param id Идентификатор пользователя, для которого требуется получить роли.
@@ -41,26 +71,137 @@ public class RoleStorage {
      * @throws DataAccessException если возникает ошибка доступа к данным во время выполнения запроса.
      */
     public Set<Roles> getById(int id) {
-        List<Roles> listRoles = jdbcTemplate.query( "SELECT role FROM car_shop.user_roles WHERE user_id = ?", ROW_MAPPER, id);
-        Set <Roles> roles = new HashSet<>();
-        for(Roles role : listRoles){
-            roles.add(mapRoleNameToEnum(role.name()));
+        Integer mask = masks.get(id);
+        if (mask != null) {
+            hits.increment();
+            return toSet(mask);
+        }
+        misses.increment();
+        long loadedAt = generation.get();
+        int loaded = 0;
+        for (Roles role : ReplicaRoutingDataSource.fromPrimary(() -> jdbcTemplate.query(BY_USER, ROW_MAPPER, id))) {
+            if (role != null) {
+                loaded |= 1 << role.ordinal();
+            }
         }
-        return new HashSet<>(roles);
+        cache(id, loaded, loadedAt);
+        return toSet(loaded);
+    }
+
+    /**
+     * Получает роли для группы пользователей.
+     * <p>
+     * Роли пользователей, отсутствующих в кэше, читаются одним запросом {@code WHERE user_id = ANY(?)}.
+     * </p>
+     *
+     * @param ids Идентификаторы пользователей.
+     * @return Роли для каждого запрошенного идентификатора; пустой набор для пользователей без ролей.
+     */
+    public Map<Integer, Set<Roles>> getByIds(Collection<Integer> ids) {
+        Map<Integer, Set<Roles>> roles = new HashMap<>();
+        Map<Integer, Integer> loaded = new HashMap<>();
+        for (Integer id : ids) {
+            Integer mask = masks.get(id);
+            if (mask != null) {
+                hits.increment();
+                roles.put(id, toSet(mask));
+            } else if (loaded.putIfAbsent(id, 0) == null) {
+                misses.increment();
+            }
+        }
+        if (loaded.isEmpty()) {
+            return roles;
+        }
+        long loadedAt = generation.get();
+        ReplicaRoutingDataSource.onPrimary(() -> jdbcTemplate.query(BY_USERS, (RowCallbackHandler) rs -> {
+            Roles role = Roles.fromTitle(rs.getString(2));
+            if (role != null) {
+                loaded.merge(rs.getInt(1), 1 << role.ordinal(), (a, b) -> a | b);
+            }
+        }, (Object) loaded.keySet().toArray(new Integer[0])));
+        loaded.forEach((id, mask) -> {
+            cache(id, mask, loadedAt);
+            roles.put(id, toSet(mask));
+        });
+        return roles;
+    }
+
+    /**
+     * Удаляет из кэша роли пользователя. Вызывается после изменения ролей этого пользователя.
+     *
+     * @param id Идентификатор пользователя.
+     */
+    public void invalidate(int id) {
+        evict(List.of(id));
+        publisher.publish(getName(), List.of(id));
+    }
+
+    /**
+     * Очищает кэш ролей. Вызывается после массового изменения таблицы ролей.
+     */
+    public void invalidateAll() {
+        evictAll();
+        publisher.publish(getName(), null);
+    }
+
+    @Override
+    public String getName() {
+        return "role";
+    }
+
+    @Override
+    public void evict(Collection<Integer> ids) {
+        generation.incrementAndGet();
+        ids.forEach(masks::remove);
+    }
+
+    @Override
+    public void evictAll() {
+        generation.incrementAndGet();
+        masks.clear();
+    }
+
+    @Override
+    public void setPublisher(InvalidationPublisher publisher) {
+        this.publisher = publisher;
     }
 
     /**
-     * Преобразует строковое представление роли в соответствующее перечисление {@link Roles}.
+     * Возвращает статистику кэша ролей.
      *
-     * @param roleName Строковое представление роли.
-     * @return Перечисление {@link Roles}, соответствующее переданной строке, или {@code null}, если строка не соответствует ни одной роли.
+     * @return количество закэшированных пользователей, попаданий и промахов.
      */
-    private Roles mapRoleNameToEnum(String roleName) {
-        return switch (roleName.toLowerCase()) {
-            case "администратор" -> Roles.ADMINISTRATOR;
-            case "менеджер" -> Roles.MANAGER;
-            case "клиент" -> Roles.CLIENT;
-            default -> null;
-        };
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", masks.size());
+        result.put("hits", hits.sum());
+        result.put("misses", misses.sum());
+        return result;
+    }
+
+    /**
+     * Кэширует загруженную маску, если за время загрузки не было инвалидации:
+     * иначе прочитанные данные могли устареть и будут перечитаны при следующем обращении.
+     * <p>
+     * Инвалидация может произойти между проверкой поколения и записью в кэш, поэтому поколение проверяется
+     * повторно, и записанная маска удаляется, если оно изменилось. Инвалидация сначала увеличивает поколение,
+     * а затем удаляет запись, поэтому устаревшая маска не переживет ни одну из двух проверок.
+     * </p>
+     */
+    private void cache(int id, int mask, long loadedAt) {
+        if (masks.size() >= MAX_CACHED_USERS || generation.get() != loadedAt) {
+            return;
+        }
+        if (masks.putIfAbsent(id, mask) == null && generation.get() != loadedAt) {
+            masks.remove(id, mask);
+        }
+    }
+
+    private static Set<Roles> toSet(int mask) {
+        Set<Roles> roles = EnumSet.noneOf(Roles.class);
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            roles.add(ROLES[Integer.numberOfTrailingZeros(bits)]);
+        }
+        return roles;
     }
 }
@@ -0,0 +1,62 @@
+package org.example.repository;
+
+import org.example.util.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ключ сортировки пользователей: столбец из белого списка {@link UserColumn} и направление.
+ *
+ * @param column     столбец сортировки.
+ * @param descending {@code true} для сортировки по убыванию.
+ */
+public record SortKey(UserColumn column, boolean descending) {
+
+    /**
+     * Разбирает значение параметра сортировки.
+     * <p>
+     * Ключи перечисляются через запятую в порядке приоритета. Направление задается префиксом {@code -}
+     * или суффиксом {@code :desc}/{@code :asc}, например {@code name,-age} или {@code age:desc,city}.
+     * Повторное упоминание столбца игнорируется.
+     * </p>
+     *
+     * @param params значение параметра запроса.
+     * @return список ключей в порядке приоритета.
+     * @throws NotFoundException если параметр пуст или содержит столбец не из белого списка.
+     */
+    public static List<SortKey> parse(String params) {
+        if (params == null || params.isBlank()) {
+            throw new NotFoundException("Unexpected value: " + params);
+        }
+        List<SortKey> keys = new ArrayList<>();
+        Set<UserColumn> used = EnumSet.noneOf(UserColumn.class);
+        for (String token : params.split(",")) {
+            String name = token.trim();
+            boolean descending = false;
+            if (name.startsWith("-")) {
+                descending = true;
+                name = name.substring(1);
+            } else if (name.startsWith("+")) {
+                name = name.substring(1);
+            }
+            int colon = name.indexOf(':');
+            if (colon >= 0) {
+                String direction = name.substring(colon + 1);
+                name = name.substring(0, colon);
+                if (direction.equalsIgnoreCase("desc")) {
+                    descending = true;
+                } else if (!direction.equalsIgnoreCase("asc")) {
+                    throw new NotFoundException("Unexpected value: " + token);
+                }
+            }
+            UserColumn column = UserColumn.of(name);
+            if (used.add(column)) {
+                keys.add(new SortKey(column, descending));
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.repository;
+
+import lombok.Getter;
+import org.example.util.NotFoundException;
+
+import java.sql.ResultSet;
+import java.util.function.Function;
+
+/**
+ * Столбцы таблицы {@code car_shop.user}, по которым допускается фильтрация и выборка пользователей.
+ * <p>
+ * Устроено так же, как {@link CarColumn}: значение {@code name-filter} сопоставляется с именем столбца
+ * и функцией разбора значения фильтра. Значение параметра совпадает с именем свойства {@link org.example.dto.UserDTO}
+ * и используется в {@link Projection}.
+ * </p>
+ */
+@Getter
+public enum UserColumn implements Projection.Column {
+    NAME("name", "name", String::valueOf, ResultSet::getString),
+    AGE("age", "age", Integer::valueOf, ResultSet::getInt),
+    CITY("city", "city", String::valueOf, ResultSet::getString);
+
+    private final String parameter;
+    private final String column;
+    private final Function<String, ?> parser;
+    private final Projection.Reader reader;
+
+    UserColumn(String parameter, String column, Function<String, ?> parser, Projection.Reader reader) {
+        this.parameter = parameter;
+        this.column = column;
+        this.parser = parser;
+        this.reader = reader;
+    }
+
+    @Override
+    public String getProperty() {
+        return parameter;
+    }
+
+    /**
+     * Преобразует строковое значение фильтра в тип столбца.
+     *
+     * @param value значение из параметра запроса.
+     * @return значение, пригодное для передачи в качестве параметра SQL-запроса.
+     */
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    /**
+     * Находит столбец по значению параметра {@code name-filter}.
+     *
+     * @param parameter значение параметра запроса.
+     * @return соответствующий столбец.
+     * @throws NotFoundException если столбец отсутствует в белом списке.
+     */
+    public static UserColumn of(String parameter) {
+        for (UserColumn column : values()) {
+            if (column.parameter.equals(parameter)) {
+                return column;
+            }
+        }
+        throw new NotFoundException("Unexpected value: " + parameter);
+    }
+}
@@ -1,19 +1,24 @@
 package org.example.repository;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.cache.EntityCache;
+import org.example.config.ReplicaRoutingDataSource;
+import org.example.mapper.UserRowMapper;
 import org.example.model.User;
 import org.example.util.NotFoundException;
 import org.springframework.dao.support.DataAccessUtils;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Реализация интерфейса {@link UserStorage} с использованием JDBC.
@@ -25,9 +30,15 @@ import java.util.function.Predicate;
 @Repository
 @Slf4j
 public class UserStorage {
-    private static final BeanPropertyRowMapper<User> ROW_MAPPER = BeanPropertyRowMapper.newInstance(User.class);
+    private static final RowMapper<User> ROW_MAPPER = UserRowMapper.INSTANCE;
+    private static final String SELECT = "SELECT " + UserRowMapper.COLUMNS + " FROM car_shop.user";
+    static final String PAGE = SELECT + " WHERE user_id > ? ORDER BY user_id LIMIT ?";
+    static final String BY_ID = SELECT + " WHERE user_id = ?";
+    static final String BY_IDS = SELECT + " WHERE user_id = ANY(?) ORDER BY user_id";
+    private static final String SORT_SELECT = "SELECT u." + UserRowMapper.COLUMNS.replace(", ", ", u.") + " FROM car_shop.user u";
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final EntityCache<User> cache;
 
     /**
      * Конструктор класса {@link UserStorage}.
@@ -37,10 +48,12 @@ public class UserStorage {
      *
      * @param jdbcTemplate {@link JdbcTemplate} для выполнения SQL-запросов.
      * @param namedParameterJdbcTemplate {@link NamedParameterJdbcTemplate} для выполнения SQL-запросов с именованными параметрами.
+     * @param cache Кэш пользователей по идентификатору.
      */
-    public UserStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+    public UserStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate, EntityCache<User> cache) {
         this.jdbcTemplate = jdbcTemplate;
         this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.cache = cache;
     }
 
     /**
@@ -49,7 +62,34 @@ public class UserStorage {
      * @return Список всех пользователей {@link User}.
      */
     public List<User> getAll() {
-        return jdbcTemplate.query("SELECT * FROM car_shop.user ORDER BY user_id", ROW_MAPPER);
+        return jdbcTemplate.query(SELECT + " ORDER BY user_id", ROW_MAPPER);
+    }
+
+    /**
+     * Возвращает страницу пользователей, следующих за указанным идентификатором пользователя.
+     *
+     * @param after Идентификатор последнего пользователя предыдущей страницы, 0 для первой страницы.
+     * @param limit Максимальное количество пользователей на странице.
+     * @return Список пользователей {@link User}, отсортированный по идентификатору.
+     */
+    public List<User> getPage(int after, int limit) {
+        return jdbcTemplate.query(PAGE, ROW_MAPPER, after, limit);
+    }
+
+    /**
+     * Возвращает страницу пользователей с запрошенными полями.
+     * <p>
+     * Запрос выбирает только идентификатор и столбцы проекции, строки не преобразуются в {@link User}.
+     * </p>
+     *
+     * @param after      идентификатор последней записи предыдущей страницы, 0 для первой страницы.
+     * @param limit      максимальное количество записей на странице.
+     * @param projection запрошенные поля.
+     * @return строки с запрошенными полями, отсортированные по идентификатору.
+     */
+    public List<Projection.Row> getPage(int after, int limit, Projection<UserColumn> projection) {
+        return jdbcTemplate.query(select(projection) + " WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                projection.rowMapper(), after, limit);
     }
 
     /**
@@ -63,44 +103,96 @@ public class UserStorage {
      * @throws NotFoundException если пользователь с указанным идентификатором не найден.
      */
     public User getById(int id) {
-        List<User> users = jdbcTemplate.query("SELECT * FROM car_shop.user where user_id=?", ROW_MAPPER, id);
-        User user = DataAccessUtils.singleResult(users);
-        if (user == null) {
-            throw new NotFoundException("User with id " + id + " not found");
-        }
-        return user;
+        return cache.get(id, key -> {
+            User user = DataAccessUtils.singleResult(ReplicaRoutingDataSource.fromPrimary(() ->
+                    jdbcTemplate.query(BY_ID, ROW_MAPPER, key)));
+            if (user == null) {
+                throw new NotFoundException("User with id " + key + " not found");
+            }
+            return user;
+        });
     }
 
     /**
-     * Фильтрует пользователей по заданному критерию.
+     * Возвращает группу пользователей по идентификаторам.
      * <p>
-     * Этот метод возвращает список пользователей, которые соответствуют условию, заданному предикатом {@link Predicate}.
+     * Пользователи, уже находящиеся в кэше, берутся из него, остальные читаются одним запросом
+     * {@code WHERE user_id = ANY(?)} и сохраняются в кэш.
      * </p>
      *
-     * @param getter Функция для получения значения, по которому будет проводиться фильтрация.
-     * @param predicate Предикат для фильтрации значений.
-     * @param <T> Тип значения для фильтрации.
+     * @param ids идентификаторы.
+     * @return найденные пользователи по идентификатору; отсутствующих идентификаторов в результате нет.
+     */
+    public Map<Integer, User> getByIds(Collection<Integer> ids) {
+        return cache.getAll(ids, missing -> {
+            Map<Integer, User> found = new HashMap<>();
+            ReplicaRoutingDataSource.fromPrimary(() -> jdbcTemplate.query(BY_IDS, ROW_MAPPER, (Object) missing.toArray(new Integer[0])))
+                    .forEach(entity -> found.put(entity.getUserId(), entity));
+            return found;
+        });
+    }
+
+    /**
+     * Фильтрует пользователей по значению столбца на стороне базы данных.
+     *
+     * @param column Столбец из белого списка {@link UserColumn}.
+     * @param value Значение для сравнения, приведенное к типу столбца.
      * @return Список отфильтрованных пользователей {@link User}.
      */
-    public <T> List<User> filter(Function<User, T> getter, Predicate<T> predicate) {
+    public List<User> filter(UserColumn column, Object value) {
         log.info("Get all users after filter");
-        return getAll().stream().filter(user -> predicate.test(getter.apply(user))).toList();
+        return jdbcTemplate.query(filterQuery(column), ROW_MAPPER, value);
     }
 
     /**
-     * Сортирует пользователей по заданному критерию.
+     * Фильтрует пользователей по значению столбца и возвращает только запрошенные поля.
+     *
+     * @param column     столбец из белого списка {@link UserColumn}.
+     * @param value      значение для сравнения, приведенное к типу столбца.
+     * @param projection запрошенные поля.
+     * @return строки с запрошенными полями в порядке идентификатора.
+     */
+    public List<Projection.Row> filter(UserColumn column, Object value, Projection<UserColumn> projection) {
+        return jdbcTemplate.query(select(projection) + " WHERE " + column.getColumn() + " = ? ORDER BY user_id",
+                projection.rowMapper(), value);
+    }
+
+    /**
+     * Возвращает страницу пользователей, отсортированных на стороне базы данных.
+     * <p>
+     * Порядок задается ключами {@link SortKey}; идентификатор пользователя добавляется последним ключом в направлении
+     * первого ключа, чтобы порядок был однозначным. Следующая страница выбирается по ключу: в качестве курсора
+     * передается идентификатор последнего пользователя предыдущей страницы, его значения ключей читаются отдельным
+     * запросом, и из базы читаются только строки, которые следуют за ним в заданном порядке. Значения {@code NULL}
+     * учитываются так же, как в {@code ORDER BY}: последними при сортировке по возрастанию и первыми при сортировке
+     * по убыванию.
+     * </p>
      * <p>
-     * Этот метод возвращает список пользователей, отсортированный по значению, полученному с помощью функции {@link Function}.
+     * Сортировка по одному столбцу читает индекс {@code (столбец, user_id)} версии 1.1 в прямом или обратном
+     * направлении: страница после курсора выбирается сравнением строк {@code (столбец, user_id) > (?, ?)},
+     * а строки со значением {@code NULL} — отдельным запросом, когда страница доходит до них. Для нескольких
+     * ключей индексов нет, и условие курсора проверяется для каждой строки.
      * </p>
      *
-     * @param keyExtractor Функция для получения ключа для сортировки.
-     * @param <T> Тип ключа для сортировки.
+     * @param keys  Ключи сортировки в порядке приоритета.
+     * @param after Идентификатор последнего пользователя предыдущей страницы, 0 для первой страницы.
+     * @param limit Максимальное количество пользователей на странице.
      * @return Список отсортированных пользователей {@link User}.
+     * @throws NotFoundException если пользователя-курсора не существует.
      */
-    public <T extends Comparable<T>> List<User> sort(Function<User, T> keyExtractor) {
-        log.info("Get all users after sort");
-        return getAll().stream()
-                .sorted(Comparator.comparing(keyExtractor)).toList();
+    public List<User> sort(List<SortKey> keys, int after, int limit) {
+        log.info("Get users sorted by {}", keys);
+        if (after <= 0) {
+            return jdbcTemplate.query(sortQuery(keys), ROW_MAPPER, limit);
+        }
+        Object[] cursor = cursor(keys, after);
+        if (keys.size() == 1) {
+            return sortAfter(keys.get(0), cursor[0], after, limit);
+        }
+        List<Object> args = new ArrayList<>();
+        String condition = afterCursor(keys, cursor, after, args);
+        args.add(limit);
+        return jdbcTemplate.query(SORT_SELECT + " WHERE " + condition + orderBy(keys), ROW_MAPPER, args.toArray());
     }
 
     /**
@@ -121,11 +213,125 @@ public class UserStorage {
                 .addValue("name", user.getName())
                 .addValue("age", user.getAge())
                 .addValue("city", user.getCity());
-        if (namedParameterJdbcTemplate.update("UPDATE car_shop.user set login=:login, password=:password, name=:name," +
-                                              "age=:age, city=:city WHERE user_id=:user_id", map) == 0) {
+        int updated = namedParameterJdbcTemplate.update("UPDATE car_shop.user set login=:login, password=:password, name=:name," +
+                                                        "age=:age, city=:city WHERE user_id=:user_id", map);
+        cache.invalidate(user.getUserId());
+        if (updated == 0) {
             throw new NotFoundException("User with {} id not found");
         }
         return user;
     }
 
+    /**
+     * Очищает кэш пользователей после изменения таблицы в обход этого хранилища.
+     */
+    public void invalidateCache() {
+        cache.invalidateAll();
+    }
+
+    private Object[] cursor(List<SortKey> keys, int after) {
+        String columns = keys.stream().map(key -> key.column().getColumn()).collect(Collectors.joining(", "));
+        List<Object[]> rows = jdbcTemplate.query("SELECT " + columns + " FROM car_shop.user WHERE user_id = ?",
+                (resultSet, rowNum) -> {
+                    Object[] values = new Object[keys.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = resultSet.getObject(i + 1);
+                    }
+                    return values;
+                }, after);
+        if (rows.isEmpty()) {
+            throw new NotFoundException("User with id " + after + " not found");
+        }
+        return rows.get(0);
+    }
+
+    private List<User> sortAfter(SortKey key, Object value, int after, int limit) {
+        boolean nulls = value == null;
+        List<User> page = new ArrayList<>(nulls
+                ? jdbcTemplate.query(sortQuery(key, true, true), ROW_MAPPER, after, limit)
+                : jdbcTemplate.query(sortQuery(key, false, true), ROW_MAPPER, value, after, limit));
+        boolean lastSegment = nulls != key.descending();
+        if (!lastSegment && page.size() < limit) {
+            page.addAll(jdbcTemplate.query(sortQuery(key, !nulls, false), ROW_MAPPER, limit - page.size()));
+        }
+        return page;
+    }
+
+    private static String afterCursor(List<SortKey> keys, Object[] cursor, int after, List<Object> args) {
+        StringBuilder condition = new StringBuilder("(");
+        List<Object> equalArgs = new ArrayList<>();
+        StringBuilder equal = new StringBuilder();
+        for (int i = 0; i < keys.size(); i++) {
+            SortKey key = keys.get(i);
+            String u = "u." + key.column().getColumn();
+            Object value = cursor[i];
+            String following;
+            if (value == null) {
+                following = key.descending() ? u + " IS NOT NULL" : "FALSE";
+            } else {
+                following = key.descending() ? u + " < ?" : "(" + u + " > ? OR " + u + " IS NULL)";
+            }
+            condition.append(equal).append("(").append(following).append(") OR ");
+            args.addAll(equalArgs);
+            if (value != null) {
+                args.add(value);
+                equal.append(u).append(" = ? AND ");
+                equalArgs.add(value);
+            } else {
+                equal.append(u).append(" IS NULL AND ");
+            }
+        }
+        args.addAll(equalArgs);
+        args.add(after);
+        return condition.append(equal).append("u.user_id ").append(keys.get(0).descending() ? "<" : ">")
+                .append(" ?)").toString();
+    }
+
+    /**
+     * Формирует запрос первой страницы сортировки.
+     *
+     * @param keys ключи сортировки.
+     * @return запрос с параметром {@code LIMIT}.
+     */
+    static String sortQuery(List<SortKey> keys) {
+        return SORT_SELECT + orderBy(keys);
+    }
+
+    /**
+     * Формирует запрос части сортировки по одному столбцу: строк со значением столбца или строк с {@code NULL}.
+     *
+     * @param key         ключ сортировки.
+     * @param nulls       {@code true} для строк со значением {@code NULL}.
+     * @param afterCursor {@code true}, если строки выбираются после курсора; параметры курсора — значение столбца
+     *                    (кроме строк с {@code NULL}) и идентификатор.
+     * @return запрос с параметрами курсора и {@code LIMIT}.
+     */
+    static String sortQuery(SortKey key, boolean nulls, boolean afterCursor) {
+        String column = "u." + key.column().getColumn();
+        String direction = key.descending() ? " DESC" : "";
+        String following = key.descending() ? " < " : " > ";
+        if (nulls) {
+            return SORT_SELECT + " WHERE " + column + " IS NULL" + (afterCursor ? " AND u.user_id" + following + "?" : "")
+                   + " ORDER BY u.user_id" + direction + " LIMIT ?";
+        }
+        return SORT_SELECT + " WHERE " + (afterCursor ? "(" + column + ", u.user_id)" + following + "(?, ?)" : column + " IS NOT NULL")
+               + " ORDER BY " + column + direction + ", u.user_id" + direction + " LIMIT ?";
+    }
+
+    private static String orderBy(List<SortKey> keys) {
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (SortKey key : keys) {
+            orderBy.append("u.").append(key.column().getColumn()).append(key.descending() ? " DESC, " : ", ");
+        }
+        return orderBy.append("u.user_id").append(keys.get(0).descending() ? " DESC" : "").append(" LIMIT ?").toString();
+    }
+
+    private static String select(Projection<UserColumn> projection) {
+        return "SELECT " + projection.select("user_id") + " FROM car_shop.user";
+    }
+
+    static String filterQuery(UserColumn column) {
+        return SELECT + " WHERE " + column.getColumn() + " = ? ORDER BY user_id";
+    }
+
 }
@@ -1,14 +1,23 @@
 package org.example.service;
 
+import org.example.aop.ReadOnly;
+import org.example.dto.BatchItemResultDTO;
 import org.example.dto.CarDTO;
 import org.example.mapper.CarMapper;
 import org.example.model.Car;
+import org.example.repository.CarColumn;
+import org.example.repository.CarSearch;
 import org.example.repository.CarStorage;
-import org.example.util.NotFoundException;
+import org.example.repository.Projection;
 import org.example.util.ObjectValidator;
+import org.example.util.RequestCoalescer;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class CarService {
@@ -17,40 +26,104 @@ public class CarService {
 
     private final ObjectValidator objectValidator;
 
-    public CarService(CarStorage storage, ObjectValidator objectValidator) {
+    private final RequestCoalescer coalescer;
+
+    public CarService(CarStorage storage, ObjectValidator objectValidator, RequestCoalescer coalescer) {
         this.storage = storage;
         this.objectValidator = objectValidator;
+        this.coalescer = coalescer;
+    }
+
+    public String etag() {
+        return storage.etag();
     }
 
+    @ReadOnly
     public List<Car> getAll() {
         return storage.getAll();
     }
 
+    @ReadOnly
+    public List<Car> getPage(int after, int limit) {
+        return storage.getPage(after, limit);
+    }
+
+    @ReadOnly
+    public List<Projection.Row> getPage(int after, int limit, Projection<CarColumn> projection) {
+        return storage.getPage(after, limit, projection);
+    }
+
+    @ReadOnly
+    public void export(Consumer<Car> consumer) {
+        storage.streamAll(consumer);
+    }
+
     public List<CarDTO> getAllDTO(List<Car> cars) {
         return cars.stream()
                 .map(CarMapper.INSTANCE::getCarDTO)
                 .toList();
     }
 
+    @ReadOnly
     public Car getById(int id) {
-        return storage.getById(id);
+        return coalescer.execute("car.getById", id, () -> storage.getById(id));
+    }
+
+    @ReadOnly
+    public Map<Integer, Car> getByIds(Collection<Integer> ids) {
+        return storage.getByIds(ids);
     }
 
     public Car saveOrUpdate(Car car) {
         return storage.saveOrUpdate(car);
     }
 
+    public List<BatchItemResultDTO> saveAll(List<CarDTO> carDTOs) {
+        List<BatchItemResultDTO> results = new ArrayList<>(carDTOs.size());
+        List<Car> validCars = new ArrayList<>(carDTOs.size());
+        List<BatchItemResultDTO> created = new ArrayList<>(carDTOs.size());
+        for (int i = 0; i < carDTOs.size(); i++) {
+            List<String> violations = objectValidator.getViolations(carDTOs.get(i));
+            BatchItemResultDTO result = new BatchItemResultDTO(i, null, violations);
+            if (violations.isEmpty()) {
+                validCars.add(CarMapper.INSTANCE.getCar(carDTOs.get(i)));
+                created.add(result);
+            }
+            results.add(result);
+        }
+        List<Integer> ids = storage.saveAll(validCars);
+        for (int i = 0; i < ids.size(); i++) {
+            created.get(i).setId(ids.get(i));
+        }
+        return results;
+    }
+
     public void delete(int id) {
         storage.delete(id);
     }
 
+    @ReadOnly
     public List<Car> getFilteredCars(String nameFilter, String params) {
-        return switch (nameFilter) {
-            case "brand" -> storage.filter(Car::getBrand, brand -> brand.equals(params));
-            case "condition" -> storage.filter(Car::getCondition, condition -> condition.equals(params));
-            case "price" -> storage.filter(Car::getPrice, price -> price == (Integer.parseInt(params)));
-            default -> throw new NotFoundException("Unexpected value: " + nameFilter);
-        };
+        CarColumn column = CarColumn.of(nameFilter);
+        Object value = column.parse(params);
+        return coalescer.execute("car.filter", List.of(column, value), () -> storage.filter(column, value));
+    }
+
+    @ReadOnly
+    public List<Projection.Row> getFilteredCars(String nameFilter, String params, Projection<CarColumn> projection) {
+        CarColumn column = CarColumn.of(nameFilter);
+        Object value = column.parse(params);
+        return coalescer.execute("car.filter", List.of(column, value, projection), () -> storage.filter(column, value, projection));
+    }
+
+    @ReadOnly
+    public List<Car> search(CarSearch search) {
+        return coalescer.execute("car.search", search, () -> storage.search(search));
+    }
+
+    @ReadOnly
+    public List<Projection.Row> search(CarSearch search, Projection<CarColumn> projection) {
+        return coalescer.execute("car.search", List.of(search, projection), () -> storage.search(search, projection));
     }
 
     public boolean isCarValidation(CarDTO carDTO, int id) {
@@ -1,58 +1,112 @@
 package org.example.service;
 
+import org.example.aop.ReadOnly;
 import org.example.dto.OrderDTO;
+import org.example.dto.StatusChangeDTO;
 import org.example.mapper.OrderMapper;
 import org.example.model.Order;
+import org.example.repository.OrderColumn;
 import org.example.repository.OrderStorage;
-import org.example.util.NotFoundException;
+import org.example.repository.Projection;
 import org.example.util.ObjectValidator;
+import org.example.util.RequestCoalescer;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class OrderService {
     private final OrderStorage storage;
     private final ObjectValidator objectValidator;
+    private final RequestCoalescer coalescer;
 
-    public OrderService(OrderStorage storage, ObjectValidator objectValidator) {
+    public OrderService(OrderStorage storage, ObjectValidator objectValidator, RequestCoalescer coalescer) {
         this.storage = storage;
         this.objectValidator = objectValidator;
+        this.coalescer = coalescer;
     }
 
     public void create(Order order) {
         storage.create(order);
     }
 
+    public String etag() {
+        return storage.etag();
+    }
+
+    @ReadOnly
     public List<Order> getAll() {
         return storage.getAll();
     }
 
+    @ReadOnly
+    public List<Order> getPage(int after, int limit) {
+        return storage.getPage(after, limit);
+    }
+
+    @ReadOnly
+    public List<Projection.Row> getPage(int after, int limit, Projection<OrderColumn> projection) {
+        return storage.getPage(after, limit, projection);
+    }
+
+    @ReadOnly
+    public void export(Consumer<Order> consumer) {
+        storage.streamAll(consumer);
+    }
+
     public List<OrderDTO> getAllDTO(List<Order> orders) {
         return orders.stream()
                 .map(OrderMapper.INSTANCE::getOdderDTO)
                 .toList();
     }
 
+    @ReadOnly
     public Order getById(int id) {
-        return storage.getById(id);
+        return coalescer.execute("order.getById", id, () -> storage.getById(id));
+    }
+
+    @ReadOnly
+    public Map<Integer, Order> getByIds(Collection<Integer> ids) {
+        return storage.getByIds(ids);
     }
 
     public void changeStatus(int id, String status) {
         storage.changeStatus(id, status);
     }
 
+    public Order changeStatus(int id, String status, String expectedStatus) {
+        return storage.changeStatus(id, status, expectedStatus);
+    }
+
+    public List<Integer> changeStatus(StatusChangeDTO statusChangeDTO) {
+        objectValidator.validateObject(statusChangeDTO);
+        if (statusChangeDTO.getIds() != null) {
+            return storage.changeStatus(statusChangeDTO.getIds(), statusChangeDTO.getStatus(), statusChangeDTO.getExpectedStatus());
+        }
+        OrderColumn column = OrderColumn.of(statusChangeDTO.getNameFilter());
+        return storage.changeStatus(column, column.parse(statusChangeDTO.getParams()),
+                statusChangeDTO.getStatus(), statusChangeDTO.getExpectedStatus());
+    }
+
     public void canceled(int id) {
         storage.canceled(id);
     }
 
+    @ReadOnly
     public List<Order> getFilteredOrder(String nameFilter, String params) {
-        return switch (nameFilter) {
-            case "date" -> storage.filter(Order::getDate, date -> date.isEqual(LocalDate.parse(params)));
-            case "status" -> storage.filter(Order::getStatus, status -> status.equals(params));
-            default -> throw new NotFoundException("Unexpected value: " + nameFilter);
-        };
+        OrderColumn column = OrderColumn.of(nameFilter);
+        Object value = column.parse(params);
+        return coalescer.execute("order.filter", List.of(column, value), () -> storage.filter(column, value));
+    }
+
+    @ReadOnly
+    public List<Projection.Row> getFilteredOrder(String nameFilter, String params, Projection<OrderColumn> projection) {
+        OrderColumn column = OrderColumn.of(nameFilter);
+        Object value = column.parse(params);
+        return coalescer.execute("order.filter", List.of(column, value, projection), () -> storage.filter(column, value, projection));
     }
 
     public boolean isOrderValidation(OrderDTO orderDTO) {
@@ -1,59 +1,105 @@
 package org.example.service;
 
+import org.example.aop.ReadOnly;
 import org.example.dto.UserDTO;
 import org.example.mapper.UserMapper;
+import org.example.model.Order;
+import org.example.model.Roles;
 import org.example.model.User;
+import org.example.repository.OrderStorage;
+import org.example.repository.Projection;
+import org.example.repository.RoleStorage;
+import org.example.repository.SortKey;
+import org.example.repository.UserColumn;
 import org.example.repository.UserStorage;
-import org.example.util.NotFoundException;
 import org.example.util.ObjectValidator;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class UserService {
     private final UserStorage storage;
+    private final RoleStorage roleStorage;
+    private final OrderStorage orderStorage;
     private final ObjectValidator objectValidator;
 
-    public UserService(UserStorage storage, ObjectValidator objectValidator) {
+    public UserService(UserStorage storage, RoleStorage roleStorage, OrderStorage orderStorage, ObjectValidator objectValidator) {
         this.storage = storage;
+        this.roleStorage = roleStorage;
+        this.orderStorage = orderStorage;
         this.objectValidator = objectValidator;
     }
 
+    @ReadOnly
     public List<User> getAll() {
         return storage.getAll();
     }
 
+    @ReadOnly
+    public List<User> getPage(int after, int limit) {
+        return storage.getPage(after, limit);
+    }
+
+    @ReadOnly
+    public List<Projection.Row> getPage(int after, int limit, Projection<UserColumn> projection) {
+        return storage.getPage(after, limit, projection);
+    }
+
+    @ReadOnly
+    public List<User> expand(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        List<Integer> ids = users.stream().map(User::getUserId).toList();
+        Map<Integer, Set<Roles>> roles = roleStorage.getByIds(ids);
+        Map<Integer, List<Order>> orders = orderStorage.getByUserIds(ids);
+        for (User user : users) {
+            user.setRole(roles.getOrDefault(user.getUserId(), EnumSet.noneOf(Roles.class)));
+            user.setOrders(orders.getOrDefault(user.getUserId(), List.of()));
+        }
+        return users;
+    }
+
     public List<UserDTO> getAllDTO(List<User> users){
         return users.stream()
                 .map(UserMapper.INSTANCE::getUserDTO)
                 .toList();
     }
 
+    @ReadOnly
     public User getById(int id) {
         return storage.getById(id);
     }
 
+    @ReadOnly
+    public Map<Integer, User> getByIds(Collection<Integer> ids) {
+        return storage.getByIds(ids);
+    }
+
     public User update(User user) {
         return storage.update(user);
     }
 
-    public List<User> getSortedUsers(String paramsSort) {
-        return switch (paramsSort) {
-            case "name" -> storage.sort(User::getName);
-            case "age" -> storage.sort(User::getAge);
-            case "city" -> storage.sort(User::getCity);
-            default -> throw new NotFoundException("Unexpected value: " + paramsSort);
-        };
+    @ReadOnly
+    public List<User> getSortedUsers(String paramsSort, int after, int limit) {
+        return storage.sort(SortKey.parse(paramsSort), after, limit);
     }
 
+    @ReadOnly
     public List<User> getFilteredUsers(String nameFilter, String params) {
-        return switch (nameFilter) {
-            case "name" -> storage.filter(User::getName, name -> name.equals(params));
-            case "age" -> storage.filter(User::getAge, age -> age == Integer.parseInt(params));
-            case "city" -> storage.filter(User::getCity, city -> city.equals(params));
-            default -> throw new NotFoundException("Unexpected value: " + nameFilter);
-        };
+        UserColumn column = UserColumn.of(nameFilter);
+        return storage.filter(column, column.parse(params));
+    }
+
+    @ReadOnly
+    public List<Projection.Row> getFilteredUsers(String nameFilter, String params, Projection<UserColumn> projection) {
+        UserColumn column = UserColumn.of(nameFilter);
+        return storage.filter(column, column.parse(params), projection);
     }
 
     public boolean isCarValidation(UserDTO userDTO, int id) {
@@ -0,0 +1,153 @@
+package org.example.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничивает количество одновременно выполняемых вызовов пределом, который подстраивается под задержку.
+ * <p>
+ * Предел вычисляется по градиенту задержки: отношение долгосрочного среднего времени вызова к краткосрочному
+ * показывает, растет ли очередь перед базой данных. Пока время вызова не превышает долгосрочное больше чем
+ * в {@code tolerance} раз, предел растет на квадратный корень из себя; когда вызовы замедляются, предел
+ * уменьшается пропорционально градиенту (градиент не меньше 0.5, а изменение сглаживается). Вызов, завершившийся отказом базы
+ * данных (нет соединения, истекло время запроса), уменьшает предел на 10%. Предел растет, только если занята
+ * хотя бы половина разрешений, иначе при малой нагрузке он неограниченно раздувался бы.
+ * </p>
+ * <p>
+ * Вызов сверх предела не ждет, а сразу получает отказ: {@link #tryAcquire()} возвращает {@code false}.
+ * </p>
+ */
+public class AdaptiveLimiter {
+    private static final double SHORT_SMOOTHING = 0.1;
+    private static final double LONG_SMOOTHING = 0.002;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double DROP_FACTOR = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    /**
+     * Создает ограничитель.
+     *
+     * @param initialLimit начальный предел.
+     * @param minLimit     минимальный предел.
+     * @param maxLimit     максимальный предел.
+     * @param tolerance    допустимое отношение краткосрочной задержки к долгосрочной, при котором предел не снижается.
+     */
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || minLimit > maxLimit || tolerance < 1) {
+            throw new IllegalArgumentException("Invalid limits: min " + minLimit + ", max " + maxLimit
+                                               + ", tolerance " + tolerance);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Пытается занять разрешение без ожидания.
+     *
+     * @return {@code true}, если разрешение получено и после вызова нужно вызвать один из методов {@code release}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Возвращает разрешение после успешного вызова и учитывает его время.
+     *
+     * @param rttNanos время вызова в наносекундах.
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (longRttNanos == 0) {
+                shortRttNanos = rttNanos;
+                longRttNanos = rttNanos;
+                return;
+            }
+            shortRttNanos += (rttNanos - shortRttNanos) * SHORT_SMOOTHING;
+            longRttNanos += (rttNanos - longRttNanos) * LONG_SMOOTHING;
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+            double next = limit * gradient + Math.sqrt(limit);
+            if (current * 2 < limit) {
+                next = Math.min(next, limit);
+            }
+            update(limit * (1 - LIMIT_SMOOTHING) + next * LIMIT_SMOOTHING);
+        }
+    }
+
+    /**
+     * Возвращает разрешение после вызова, который не удалось выполнить из-за перегрузки базы данных.
+     */
+    public void drop() {
+        inFlight.decrementAndGet();
+        dropped.increment();
+        synchronized (this) {
+            update(limit * DROP_FACTOR);
+        }
+    }
+
+    /**
+     * Возвращает разрешение, не учитывая время вызова, например после прикладной ошибки.
+     */
+    public void ignore() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Возвращает текущий предел.
+     *
+     * @return количество вызовов, которые могут выполняться одновременно.
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Возвращает состояние ограничителя.
+     *
+     * @return предел, количество выполняемых вызовов, счетчики принятых, отклоненных и сброшенных вызовов
+     * и средние задержки.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("limit", getLimit());
+        result.put("inFlight", inFlight.get());
+        result.put("accepted", accepted.sum());
+        result.put("rejected", rejected.sum());
+        result.put("dropped", dropped.sum());
+        synchronized (this) {
+            result.put("shortRttMillis", shortRttNanos / 1_000_000.0);
+            result.put("longRttMillis", longRttNanos / 1_000_000.0);
+        }
+        return result;
+    }
+
+    private void update(double next) {
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Скользящее окно последних замеров длительности для расчета перцентилей.
+ * <p>
+ * Хранит не более {@code capacity} последних значений в кольцевом буфере, поэтому потребление памяти
+ * не зависит от количества замеров. Перцентили рассчитываются по снимку окна в момент запроса.
+ * </p>
+ */
+public class LatencyRecorder {
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long count;
+
+    /**
+     * Создает окно заданного размера.
+     *
+     * @param capacity максимальное количество хранимых замеров.
+     */
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Добавляет замер длительности.
+     *
+     * @param nanos длительность в наносекундах.
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        count++;
+    }
+
+    /**
+     * Возвращает количество замеров за все время работы.
+     *
+     * @return общее количество замеров.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Рассчитывает перцентили p50, p95, p99 и максимум по текущему окну замеров.
+     *
+     * @return значения в миллисекундах, упорядоченные по возрастанию перцентиля.
+     */
+    public Map<String, Double> percentiles() {
+        long[] snapshot;
+        synchronized (this) {
+            snapshot = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(snapshot);
+        Map<String, Double> result = new LinkedHashMap<>();
+        result.put("p50", percentile(snapshot, 0.50));
+        result.put("p95", percentile(snapshot, 0.95));
+        result.put("p99", percentile(snapshot, 0.99));
+        result.put("max", snapshot.length == 0 ? 0.0 : toMillis(snapshot[snapshot.length - 1]));
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double rank) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(rank * sorted.length) - 1;
+        return toMillis(sorted[Math.max(index, 0)]);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -1,7 +1,14 @@
 package org.example.util;
 
+/**
+ * Сущность не найдена; преобразуется в ответ 404.
+ * <p>
+ * Стек вызовов не заполняется: исключение описывает ожидаемый результат запроса, а не ошибку,
+ * и часто выбрасывается на горячем пути при запросах несуществующих идентификаторов.
+ * </p>
+ */
 public class NotFoundException extends RuntimeException{
     public NotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -9,6 +9,8 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -84,6 +86,22 @@ public class ObjectValidator {
         }
     }
 
+    /**
+     * Возвращает сообщения обо всех нарушениях ограничений объекта DTO без выбрасывания исключения.
+     *
+     * @param <T> тип объекта DTO
+     * @param objectDTO объект DTO для проверки
+     * @return список сообщений об ошибках; пустой, если объект прошел валидацию
+     */
+    public <T> List<String> getViolations(T objectDTO) {
+        Set<ConstraintViolation<T>> violations = validator.validate(objectDTO);
+        List<String> messages = new ArrayList<>(violations.size());
+        for (ConstraintViolation<T> violation : violations) {
+            messages.add(violation.getMessage());
+        }
+        return messages;
+    }
+
     /**
      * Проверяет валидность переданного объекта DTO и, в случае неуспеха, отправляет
      * HTTP-ответ с кодом ошибки и сообщением. Возвращает true, если объект прошел
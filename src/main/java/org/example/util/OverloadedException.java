@@ -0,0 +1,21 @@
+package org.example.util;
+
+/**
+ * Запрос отклонен из-за перегрузки; преобразуется в ответ 503 с заголовком {@code Retry-After}.
+ * <p>
+ * Стек вызовов не заполняется: при перегрузке исключение выбрасывается на каждый лишний запрос,
+ * и отказ должен обходиться дешевле, чем выполнение запроса.
+ * </p>
+ */
+public class OverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public OverloadedException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
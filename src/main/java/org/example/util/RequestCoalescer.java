@@ -0,0 +1,101 @@
+package org.example.util;
+
+import org.example.config.ReplicaRoutingDataSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Объединяет одновременные одинаковые чтения в одно обращение к хранилищу (single-flight).
+ * <p>
+ * Первый вызов с заданным ключом выполняет загрузку, а вызовы с тем же ключом, пришедшие до ее завершения,
+ * ожидают и получают тот же результат или то же исключение. Результаты не сохраняются: после завершения
+ * загрузки следующий вызов снова обращается к хранилищу, поэтому объединение не заменяет кэш и не мешает ему.
+ * Полученные объекты общие для всех ожидавших вызовов и не должны изменяться.
+ * </p>
+ * <p>
+ * В ключ входит признак чтения с реплики ({@link ReplicaRoutingDataSource#isReadOnly()}). Вызов, который должен
+ * читать с основной базы (например, клиента, только что изменившего данные), не присоединяется к загрузке
+ * с реплики и не получает данные, прочитанные до его изменения.
+ * </p>
+ */
+public class RequestCoalescer {
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Выполняет загрузку или присоединяется к уже выполняющейся загрузке с тем же ключом.
+     *
+     * @param operation имя операции, например {@code car.getById}; используется в ключе и статистике.
+     * @param argument  аргумент операции, определяющий результат; должен корректно реализовывать {@code equals}.
+     * @param loader    загрузка из хранилища.
+     * @param <T>       тип результата.
+     * @return результат загрузки.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object argument, Supplier<T> loader) {
+        Counters operationCounters = counters.computeIfAbsent(operation, name -> new Counters());
+        operationCounters.calls.increment();
+        Key key = new Key(operation, argument, ReplicaRoutingDataSource.isReadOnly());
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            operationCounters.collapsed.increment();
+            return (T) await(running);
+        }
+        try {
+            T result = loader.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Возвращает статистику объединения по операциям.
+     *
+     * @return количество вызовов и количество вызовов, получивших результат чужой загрузки.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new TreeMap<>();
+        counters.forEach((operation, operationCounters) -> {
+            Map<String, Long> values = new LinkedHashMap<>();
+            values.put("calls", operationCounters.calls.sum());
+            values.put("collapsed", operationCounters.collapsed.sum());
+            result.put(operation, values);
+        });
+        return result;
+    }
+
+    private static Object await(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Key(String operation, Object argument, boolean replica) {
+    }
+
+    private static final class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder collapsed = new LongAdder();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.web;
+
+import org.example.repository.CarStorage;
+import org.example.repository.CopyStorage;
+import org.example.repository.CopyTable;
+import org.example.repository.OrderStorage;
+import org.example.repository.RoleStorage;
+import org.example.repository.UserStorage;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private final CopyStorage copyStorage;
+    private final RoleStorage roleStorage;
+    private final CarStorage carStorage;
+    private final OrderStorage orderStorage;
+    private final UserStorage userStorage;
+
+    public AdminController(CopyStorage copyStorage, RoleStorage roleStorage, CarStorage carStorage,
+                           OrderStorage orderStorage, UserStorage userStorage) {
+        this.copyStorage = copyStorage;
+        this.roleStorage = roleStorage;
+        this.carStorage = carStorage;
+        this.orderStorage = orderStorage;
+        this.userStorage = userStorage;
+    }
+
+    @GetMapping(value = "/copy/{table}", produces = TEXT_CSV_VALUE)
+    public void exportTable(@PathVariable String table, HttpServletResponse response) throws IOException {
+        CopyTable copyTable = CopyTable.of(table);
+        response.setContentType(TEXT_CSV_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + copyTable.getParameter() + ".csv\"");
+        try (OutputStream out = response.getOutputStream()) {
+            copyStorage.exportTable(copyTable, out);
+        }
+    }
+
+    @PostMapping(value = "/copy/{table}", consumes = TEXT_CSV_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Long>> importTable(@PathVariable String table, HttpServletRequest request) throws IOException {
+        CopyTable copyTable = CopyTable.of(table);
+        try (InputStream in = request.getInputStream()) {
+            long rows = copyStorage.importTable(copyTable, in);
+            switch (copyTable) {
+                case CAR -> carStorage.invalidateCache();
+                case ORDERS -> orderStorage.invalidateCache();
+                case USER -> userStorage.invalidateCache();
+                case USER_ROLES -> roleStorage.invalidateAll();
+            }
+            return ResponseEntity.ok(Map.of("rows", rows));
+        }
+    }
+}
@@ -1,39 +1,126 @@
 package org.example.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.BatchItemResultDTO;
 import org.example.dto.CarDTO;
+import org.example.dto.LookupItemDTO;
 import org.example.mapper.CarMapper;
 import org.example.model.Car;
+import org.example.repository.CarColumn;
+import org.example.repository.CarSearch;
+import org.example.repository.Projection;
 import org.example.service.CarService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 @RestController
-@RequestMapping(value = "/cars", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(value = "/cars", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+        ResponseFormats.SMILE_VALUE, ResponseFormats.MSGPACK_VALUE})
 public class CarController {
+    private static final int MAX_BATCH_SIZE = 10_000;
     private final CarService service;
-    public CarController(CarService service) {
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
+
+    public CarController(CarService service, ObjectMapper objectMapper, ResponseCache responseCache) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
-    public ResponseEntity<List<CarDTO>> getAll() {
-        List<Car> cars = service.getAll();
-        return ResponseEntity.ok(service.getAllDTO(cars));
+    public ResponseEntity<byte[]> getAll(@RequestParam(value = "after", defaultValue = "0") int after,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestParam(value = "fields", required = false) String fields,
+                                         WebRequest request) {
+        String etag = service.etag();
+        if (Conditional.notModified(request, etag)) {
+            return null;
+        }
+        int pageSize = Paging.limit(limit);
+        Projection<CarColumn> projection = Projection.parse(CarColumn.class, fields);
+        return responseCache.get(Arrays.asList("cars", after, pageSize, projection), etag, request, () -> {
+            if (projection != null) {
+                List<Projection.Row> rows = service.getPage(after, pageSize, projection);
+                return Paging.ok(rows, pageSize, Projection.Row::id).body(Projection.values(rows));
+            }
+            List<Car> cars = service.getPage(after, pageSize);
+            return Paging.ok(cars, pageSize, Car::getCar_id).body(service.getAllDTO(cars));
+        });
     }
 
     @GetMapping("/filter")
-    public ResponseEntity<List<CarDTO>> getAllAfterFilter(@RequestParam(value = "name-filter", required = false) String nameFilter,
-                                                          @RequestParam(value = "params", required = false) String params) {
-        List<Car> cars = service.getFilteredCars(nameFilter, params);
-        return ResponseEntity.ok(service.getAllDTO(cars));
+    public ResponseEntity<byte[]> getAllAfterFilter(@RequestParam(value = "name-filter", required = false) String nameFilter,
+                                                    @RequestParam(value = "params", required = false) String params,
+                                                    @RequestParam(value = "fields", required = false) String fields,
+                                                    WebRequest request) {
+        String etag = service.etag();
+        if (Conditional.notModified(request, etag)) {
+            return null;
+        }
+        Projection<CarColumn> projection = Projection.parse(CarColumn.class, fields);
+        return responseCache.get(Arrays.asList("cars/filter", nameFilter, params, projection), etag, request, () -> {
+            if (projection != null) {
+                return ResponseEntity.ok(Projection.values(service.getFilteredCars(nameFilter, params, projection)));
+            }
+            List<Car> cars = service.getFilteredCars(nameFilter, params);
+            return ResponseEntity.ok(service.getAllDTO(cars));
+        });
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<byte[]> search(@RequestParam(value = "brand", required = false) String brands,
+                                         @RequestParam(value = "condition", required = false) String conditions,
+                                         @RequestParam(value = "year", required = false) String years,
+                                         @RequestParam(value = "price-from", required = false) String priceFrom,
+                                         @RequestParam(value = "price-to", required = false) String priceTo,
+                                         @RequestParam(value = "fields", required = false) String fields,
+                                         WebRequest request) {
+        String etag = service.etag();
+        if (Conditional.notModified(request, etag)) {
+            return null;
+        }
+        CarSearch search = CarSearch.parse(brands, conditions, years, priceFrom, priceTo);
+        Projection<CarColumn> projection = Projection.parse(CarColumn.class, fields);
+        return responseCache.get(Arrays.asList("cars/search", search, projection), etag, request, () -> projection != null
+                ? ResponseEntity.ok(Projection.values(service.search(search, projection)))
+                : ResponseEntity.ok(service.getAllDTO(service.search(search))));
+    }
+
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_JSON_VALUE, JsonExportWriter.NDJSON_VALUE})
+    public void export(@RequestParam(value = "format", defaultValue = "json") String format,
+                       HttpServletResponse response) throws IOException {
+        JsonExportWriter writer = JsonExportWriter.open(objectMapper, response, format);
+        service.export(car -> writer.write(CarMapper.INSTANCE.getCarDTO(car)));
+        writer.finish();
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<LookupItemDTO<CarDTO>>> getByIds(@RequestParam("ids") List<Integer> ids, WebRequest request) {
+        Set<Integer> distinct = Lookup.distinct(ids);
+        if (distinct == null) {
+            return Lookup.tooLarge();
+        }
+        if (Conditional.notModified(request, service.etag())) {
+            return null;
+        }
+        return Lookup.ok(ids, service.getByIds(distinct), CarMapper.INSTANCE::getCarDTO, "Car");
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CarDTO> getById(@PathVariable int id) {
+    public ResponseEntity<CarDTO> getById(@PathVariable int id, WebRequest request) {
+        if (Conditional.notModified(request, service.etag())) {
+            return null;
+        }
         Car carById = service.getById(id);
         return ResponseEntity.ok(CarMapper.INSTANCE.getCarDTO(carById));
     }
@@ -47,6 +134,16 @@ public class CarController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResultDTO>> createBatch(@RequestBody List<CarDTO> carDTOs) {
+        if (carDTOs.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        List<BatchItemResultDTO> results = service.saveAll(carDTOs);
+        boolean anyCreated = results.stream().anyMatch(result -> result.getId() != null);
+        return ResponseEntity.status(anyCreated ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST).body(results);
+    }
+
     @PutMapping
     @ResponseBody
     public ResponseEntity<Car> update(@RequestBody CarDTO carDTO, @RequestParam(value = "id", required = false) int id) {
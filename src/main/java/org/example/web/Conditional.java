@@ -0,0 +1,35 @@
+package org.example.web;
+
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Условные GET-запросы по тегу версии таблицы ({@code ETag} / {@code If-None-Match}).
+ * <p>
+ * Тег проверяется до чтения данных: если он совпадает с присланным клиентом, ответ 304 Not Modified
+ * формируется без обращения к базе данных и без сериализации. Иначе тег добавляется в заголовок
+ * {@code ETag} ответа. Тег вычисляется до чтения, поэтому изменение во время чтения может дать тело новее тега,
+ * но не наоборот: следующий запрос с этим тегом просто получит данные заново.
+ * </p>
+ * <p>
+ * Тег слабый ({@code W/"..."}): он описывает версию данных, а не байты ответа, и одинаков для всех форматов
+ * ({@link ResponseFormats}) и вариантов сжатия одного URL. Сильный тег обещал бы побайтовое совпадение
+ * представлений, которого между JSON и CBOR или между gzip и исходным телом нет.
+ * </p>
+ */
+final class Conditional {
+    private static final String WEAK_PREFIX = "W/";
+
+    private Conditional() {
+    }
+
+    /**
+     * Проверяет заголовок {@code If-None-Match} и устанавливает {@code ETag} ответа.
+     *
+     * @param request текущий запрос.
+     * @param etag    тег версии данных или {@code null}, если ответ не помечается тегом.
+     * @return {@code true}, если статус 304 уже установлен и обработчик должен вернуть {@code null}.
+     */
+    static boolean notModified(WebRequest request, String etag) {
+        return etag != null && request.checkNotModified(WEAK_PREFIX + '"' + etag + '"');
+    }
+}
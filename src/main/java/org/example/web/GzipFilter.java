@@ -0,0 +1,265 @@
+package org.example.web;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сжимает большие ответы gzip, если клиент передал {@code Accept-Encoding: gzip}.
+ * <p>
+ * Первые {@code min-bytes} байт тела накапливаются в буфере. Если ответ уместился в буфер, он отправляется
+ * без сжатия: для маленьких ответов заголовки gzip и время сжатия не окупаются. Иначе ответ сжимается
+ * потоково. Ответы, у которых уже установлен {@code Content-Encoding} (например, из {@link ResponseCache}),
+ * и потоковая выгрузка NDJSON не сжимаются.
+ * </p>
+ * <p>
+ * Вызов {@code flush()} до заполнения буфера принимает решение сразу: накопленное тело меньше порога, поэтому
+ * ответ отправляется без сжатия, а сброс передается в исходный поток. Так потоковые ответы не задерживаются
+ * до {@code min-bytes} байт. Асинхронный вывод ({@code setWriteListener}) тоже отключает сжатие, если решение
+ * еще не принято, и передается исходному потоку.
+ * </p>
+ * <p>
+ * Если обработчик перевел запрос в асинхронный режим, ответ не завершается при выходе из цепочки: Spring MVC
+ * повторно передает запрос ({@code ASYNC dispatch}) с той же оберткой, и фильтр завершает ее после этой передачи.
+ * Поэтому фильтр должен быть подключен и для {@code ASYNC}. Если цепочка завершилась исключением, ответ тоже
+ * не завершается: буфер не отправляется, а контейнер сам отправляет ошибку или разрывает соединение.
+ * </p>
+ */
+public class GzipFilter implements Filter {
+    private static final String GZIP = "gzip";
+    private static final int DEFAULT_MIN_BYTES = 2048;
+
+    private int minBytes = DEFAULT_MIN_BYTES;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        String value = filterConfig.getInitParameter("min-bytes");
+        if (value != null) {
+            minBytes = Integer.parseInt(value.trim());
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (response instanceof GzipResponse wrapper) {
+            chain.doFilter(request, response);
+            finishUnlessAsync(request, wrapper);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String acceptEncoding = httpRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null || !acceptEncoding.contains(GZIP) || "HEAD".equals(httpRequest.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        GzipResponse wrapper = new GzipResponse((HttpServletResponse) response, minBytes);
+        chain.doFilter(request, wrapper);
+        finishUnlessAsync(request, wrapper);
+    }
+
+    private static void finishUnlessAsync(ServletRequest request, GzipResponse wrapper) throws IOException {
+        if (!request.isAsyncStarted()) {
+            wrapper.finish();
+        }
+    }
+
+    private static final class GzipResponse extends HttpServletResponseWrapper {
+        private final int minBytes;
+        private BufferingStream stream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+
+        private GzipResponse(HttpServletResponse response, int minBytes) {
+            super(response);
+            this.minBytes = minBytes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (stream == null) {
+                stream = new BufferingStream(this);
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            contentLength = length;
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            contentLength = length;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                contentLength = value == null ? -1 : Long.parseLong(value);
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setHeader(name, value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        private boolean compressible() {
+            String contentType = getContentType();
+            return getHeader(HttpHeaders.CONTENT_ENCODING) == null
+                   && (contentType == null || !contentType.startsWith(JsonExportWriter.NDJSON_VALUE));
+        }
+
+        private void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.close();
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+    }
+
+    private static final class BufferingStream extends ServletOutputStream {
+        private final GzipResponse response;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream target;
+        private ServletOutputStream out;
+        private boolean closed;
+
+        private BufferingStream(GzipResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (target == null) {
+                if (buffer.size() + length <= response.minBytes) {
+                    buffer.write(bytes, offset, length);
+                    return;
+                }
+                open();
+            }
+            target.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target == null) {
+                if (closed || buffer.size() == 0) {
+                    return;
+                }
+                open(false);
+            }
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (target == null) {
+                ServletOutputStream out = response.getResponse().getOutputStream();
+                response.getResponse().setContentLength(buffer.size());
+                buffer.writeTo(out);
+                out.close();
+            } else {
+                target.close();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return out == null || out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            if (target == null) {
+                try {
+                    open(false);
+                } catch (IOException e) {
+                    listener.onError(e);
+                    return;
+                }
+            }
+            out.setWriteListener(listener);
+        }
+
+        private void open() throws IOException {
+            open(response.compressible());
+        }
+
+        private void open(boolean compress) throws IOException {
+            HttpServletResponse raw = (HttpServletResponse) response.getResponse();
+            out = raw.getOutputStream();
+            if (compress) {
+                raw.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+                raw.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                target = new GZIPOutputStream(out, 8192, true);
+            } else {
+                if (response.contentLength >= 0) {
+                    raw.setContentLengthLong(response.contentLength);
+                }
+                target = out;
+            }
+            buffer.writeTo(target);
+            buffer.reset();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Потоковая запись объектов в тело ответа в виде JSON-массива или NDJSON (по одному объекту в строке).
+ * <p>
+ * Объекты сериализуются и отправляются по мере поступления, без накопления всего списка в памяти.
+ * </p>
+ * <p>
+ * Массив закрывается только вызовом {@link #finish()} после успешной выгрузки. Если выгрузка прервалась,
+ * writer просто бросают: накопленный буфер не отправляется, и тело остается незавершенным. Пока первый объект
+ * не отправлен, ответ не зафиксирован, и клиент получает статус ошибки; после этого контейнер разрывает
+ * соединение, и клиент не примет обрезанный массив за полный.
+ * </p>
+ */
+final class JsonExportWriter {
+    static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final JsonGenerator generator;
+    private final ObjectWriter writer;
+    private final boolean ndjson;
+    private long written;
+
+    private JsonExportWriter(JsonGenerator generator, ObjectWriter writer, boolean ndjson) {
+        this.generator = generator;
+        this.writer = writer;
+        this.ndjson = ndjson;
+    }
+
+    /**
+     * Подготавливает ответ и открывает запись.
+     *
+     * @param objectMapper настроенный {@link ObjectMapper} приложения.
+     * @param response     HTTP-ответ.
+     * @param format       {@code ndjson} для построчного формата, иначе JSON-массив.
+     * @return объект для записи.
+     * @throws IOException если не удалось открыть поток ответа.
+     */
+    static JsonExportWriter open(ObjectMapper objectMapper, HttpServletResponse response, String format) throws IOException {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        response.setContentType(ndjson ? NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        if (ndjson) {
+            generator.setRootValueSeparator(null);
+        } else {
+            generator.writeStartArray();
+        }
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return new JsonExportWriter(generator, writer, ndjson);
+    }
+
+    /**
+     * Записывает очередной объект. Первый объект отправляется клиенту сразу,
+     * остальные — по мере заполнения буфера.
+     *
+     * @param value объект для записи.
+     */
+    void write(Object value) {
+        try {
+            writer.writeValue(generator, value);
+            if (ndjson) {
+                generator.writeRaw('\n');
+            }
+            if (written++ == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Завершает выгрузку: закрывает массив и отправляет остаток буфера. Вызывается только после того,
+     * как все объекты записаны.
+     *
+     * @throws IOException если не удалось записать тело ответа.
+     */
+    void finish() throws IOException {
+        if (!ndjson) {
+            generator.writeEndArray();
+        }
+        generator.close();
+    }
+}
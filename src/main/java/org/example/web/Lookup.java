@@ -0,0 +1,70 @@
+package org.example.web;
+
+import org.example.dto.LookupItemDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Общие правила группового получения записей по идентификаторам ({@code ?ids=1,2,3}).
+ * <p>
+ * Количество идентификаторов ограничено {@link #MAX_IDS}; для большего списка возвращается 413.
+ * Повторяющиеся идентификаторы запрашиваются из хранилища один раз. Ответ содержит по одному элементу
+ * на каждый запрошенный идентификатор в порядке запроса; отсутствующая запись отмечается сообщением об ошибке.
+ * </p>
+ */
+final class Lookup {
+    static final int MAX_IDS = 500;
+
+    private Lookup() {
+    }
+
+    /**
+     * Проверяет размер запроса и возвращает идентификаторы без повторов.
+     *
+     * @param ids идентификаторы из запроса.
+     * @return идентификаторы без повторов в порядке запроса или {@code null}, если запрос слишком большой.
+     */
+    static Set<Integer> distinct(List<Integer> ids) {
+        return ids.size() > MAX_IDS ? null : new LinkedHashSet<>(ids);
+    }
+
+    /**
+     * Создает ответ 200 OK с результатами в порядке запроса.
+     *
+     * @param ids    идентификаторы из запроса.
+     * @param found  найденные записи по идентификатору.
+     * @param mapper преобразование записи в представление ответа.
+     * @param entity название записи для сообщения об отсутствии, например {@code Car}.
+     * @param <T>    тип записи.
+     * @param <D>    тип представления.
+     * @return ответ с результатом для каждого идентификатора.
+     */
+    static <T, D> ResponseEntity<List<LookupItemDTO<D>>> ok(List<Integer> ids, Map<Integer, T> found,
+                                                            Function<T, D> mapper, String entity) {
+        List<LookupItemDTO<D>> items = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T value = found.get(id);
+            items.add(value != null
+                    ? new LookupItemDTO<>(id, mapper.apply(value), null)
+                    : new LookupItemDTO<>(id, null, entity + " with id " + id + " not found"));
+        }
+        return ResponseEntity.ok(items);
+    }
+
+    /**
+     * Создает ответ 413 для слишком большого списка идентификаторов.
+     *
+     * @param <D> тип представления.
+     * @return ответ без тела.
+     */
+    static <D> ResponseEntity<List<LookupItemDTO<D>>> tooLarge() {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.web;
+
+import org.example.aop.AdmissionAspect;
+import org.example.cache.EntityCache;
+import org.example.cache.PgInvalidationBus;
+import org.example.config.PoolMetrics;
+import org.example.config.ReplicaRoutingDataSource;
+import org.example.repository.CarIndex;
+import org.example.repository.RoleStorage;
+import org.example.util.RequestCoalescer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping(value = "/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+public class MetricsController {
+    private final PoolMetrics poolMetrics;
+    private final RoleStorage roleStorage;
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final List<EntityCache<?>> caches;
+    private final RequestCoalescer coalescer;
+    private final PgInvalidationBus invalidationBus;
+    private final ResponseCache responseCache;
+    private final CarIndex carIndex;
+    private final AdmissionAspect admissionAspect;
+
+    public MetricsController(PoolMetrics poolMetrics, RoleStorage roleStorage, ReplicaRoutingDataSource routingDataSource,
+                             List<EntityCache<?>> caches, RequestCoalescer coalescer, PgInvalidationBus invalidationBus,
+                             ResponseCache responseCache, CarIndex carIndex,
+                             AdmissionAspect admissionAspect) {
+        this.poolMetrics = poolMetrics;
+        this.roleStorage = roleStorage;
+        this.routingDataSource = routingDataSource;
+        this.caches = caches;
+        this.coalescer = coalescer;
+        this.invalidationBus = invalidationBus;
+        this.responseCache = responseCache;
+        this.carIndex = carIndex;
+        this.admissionAspect = admissionAspect;
+    }
+
+    @GetMapping("/pool")
+    public ResponseEntity<Map<String, Object>> getPoolStatistics() {
+        return ResponseEntity.ok(poolMetrics.snapshot());
+    }
+
+    @GetMapping("/routing")
+    public ResponseEntity<Map<String, Object>> getRoutingStatistics() {
+        return ResponseEntity.ok(routingDataSource.stats());
+    }
+
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionStatistics() {
+        return ResponseEntity.ok(admissionAspect.stats());
+    }
+
+    @GetMapping("/caches")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        caches.forEach(cache -> result.put(cache.getName(), cache.stats()));
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/car-index")
+    public ResponseEntity<Map<String, Object>> getCarIndexStatistics() {
+        return ResponseEntity.ok(carIndex.stats());
+    }
+
+    @GetMapping("/responses")
+    public ResponseEntity<Map<String, Object>> getResponseCacheStatistics() {
+        return ResponseEntity.ok(responseCache.stats());
+    }
+
+    @GetMapping("/invalidation")
+    public ResponseEntity<Map<String, Object>> getInvalidationStatistics() {
+        return ResponseEntity.ok(invalidationBus.stats());
+    }
+
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Object>> getCoalescingStatistics() {
+        return ResponseEntity.ok(coalescer.stats());
+    }
+
+    @GetMapping("/roles")
+    public ResponseEntity<Map<String, Object>> getRoleCacheStatistics() {
+        return ResponseEntity.ok(roleStorage.stats());
+    }
+}
@@ -1,41 +1,108 @@
 package org.example.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.LookupItemDTO;
 import org.example.dto.OrderDTO;
+import org.example.dto.StatusChangeDTO;
 import org.example.mapper.OrderMapper;
 import org.example.model.Car;
 import org.example.model.Order;
+import org.example.repository.OrderColumn;
+import org.example.repository.Projection;
 import org.example.service.OrderService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
-@RequestMapping(value = "/orders", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(value = "/orders", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+        ResponseFormats.SMILE_VALUE, ResponseFormats.MSGPACK_VALUE})
 public class OrderController {
+    private static final int MAX_BULK_SIZE = 10_000;
     private final OrderService service;
+    private final ObjectMapper objectMapper;
+    private final ResponseCache responseCache;
 
-    public OrderController(OrderService service) {
+    public OrderController(OrderService service, ObjectMapper objectMapper, ResponseCache responseCache) {
         this.service = service;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
-    public ResponseEntity<List<OrderDTO>> getAll() {
-        List<Order> list = service.getAll();
-        return ResponseEntity.ok(service.getAllDTO(list));
+    public ResponseEntity<byte[]> getAll(@RequestParam(value = "after", defaultValue = "0") int after,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestParam(value = "fields", required = false) String fields,
+                                         WebRequest request) {
+        String etag = service.etag();
+        if (Conditional.notModified(request, etag)) {
+            return null;
+        }
+        int pageSize = Paging.limit(limit);
+        Projection<OrderColumn> projection = Projection.parse(OrderColumn.class, fields);
+        return responseCache.get(Arrays.asList("orders", after, pageSize, projection), etag, request, () -> {
+            if (projection != null) {
+                List<Projection.Row> rows = service.getPage(after, pageSize, projection);
+                return Paging.ok(rows, pageSize, Projection.Row::id).body(Projection.values(rows));
+            }
+            List<Order> list = service.getPage(after, pageSize);
+            return Paging.ok(list, pageSize, Order::getOrderId).body(service.getAllDTO(list));
+        });
     }
 
     @GetMapping("/filter")
-    public ResponseEntity<List<OrderDTO>> getAllAfterFilter(@RequestParam(value = "name-filter", required = false) String nameFilter,
-                                                            @RequestParam(value = "params", required = false) String params) {
-        List<Order> orders = service.getFilteredOrder(nameFilter, params);
-        return ResponseEntity.ok(service.getAllDTO(orders));
+    public ResponseEntity<byte[]> getAllAfterFilter(@RequestParam(value = "name-filter", required = false) String nameFilter,
+                                                    @RequestParam(value = "params", required = false) String params,
+                                                    @RequestParam(value = "fields", required = false) String fields,
+                                                    WebRequest request) {
+        String etag = service.etag();
+        if (Conditional.notModified(request, etag)) {
+            return null;
+        }
+        Projection<OrderColumn> projection = Projection.parse(OrderColumn.class, fields);
+        return responseCache.get(Arrays.asList("orders/filter", nameFilter, params, projection), etag, request, () -> {
+            if (projection != null) {
+                return ResponseEntity.ok(Projection.values(service.getFilteredOrder(nameFilter, params, projection)));
+            }
+            List<Order> orders = service.getFilteredOrder(nameFilter, params);
+            return ResponseEntity.ok(service.getAllDTO(orders));
+        });
+    }
+
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_JSON_VALUE, JsonExportWriter.NDJSON_VALUE})
+    public void export(@RequestParam(value = "format", defaultValue = "json") String format,
+                       HttpServletResponse response) throws IOException {
+        JsonExportWriter writer = JsonExportWriter.open(objectMapper, response, format);
+        service.export(order -> writer.write(OrderMapper.INSTANCE.getOdderDTO(order)));
+        writer.finish();
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<LookupItemDTO<OrderDTO>>> getByIds(@RequestParam("ids") List<Integer> ids, WebRequest request) {
+        Set<Integer> distinct = Lookup.distinct(ids);
+        if (distinct == null) {
+            return Lookup.tooLarge();
+        }
+        if (Conditional.notModified(request, service.etag())) {
+            return null;
+        }
+        return Lookup.ok(ids, service.getByIds(distinct), OrderMapper.INSTANCE::getOdderDTO, "Order");
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<OrderDTO> getById(@PathVariable int id) {
+    public ResponseEntity<OrderDTO> getById(@PathVariable int id, WebRequest request) {
+        if (Conditional.notModified(request, service.etag())) {
+            return null;
+        }
         Order orderById = service.getById(id);
         return ResponseEntity.ok(OrderMapper.INSTANCE.getOdderDTO(orderById));
     }
@@ -57,8 +124,23 @@ public class OrderController {
 
     @PutMapping("/change-status")
     public ResponseEntity<Order> changeStatus(@RequestParam(value = "id", required = false) int id,
-                                              @RequestParam(value = "status", required = false) String status) {
-        service.changeStatus(id, status);
+                                              @RequestParam(value = "status", required = false) String status,
+                                              @RequestParam(value = "expected-status", required = false) String expectedStatus) {
+        service.changeStatus(id, status, expectedStatus);
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
+
+    @PutMapping("/bulk-status")
+    public ResponseEntity<Map<String, List<Integer>>> changeStatus(@RequestBody StatusChangeDTO statusChangeDTO) {
+        if (statusChangeDTO.getIds() != null && statusChangeDTO.getIds().size() > MAX_BULK_SIZE) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        if (statusChangeDTO.getStatus() == null || statusChangeDTO.getStatus().isBlank()
+            || statusChangeDTO.getIds() == null && (statusChangeDTO.getNameFilter() == null
+                                                   || statusChangeDTO.getParams() == null
+                                                   || statusChangeDTO.getParams().isBlank())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(Map.of("updated", service.changeStatus(statusChangeDTO)));
+    }
 }
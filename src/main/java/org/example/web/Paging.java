@@ -0,0 +1,53 @@
+package org.example.web;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Общие правила постраничной выдачи списков по ключу ({@code ?after=<id>&limit=N}).
+ * <p>
+ * Размер страницы ограничен {@link #MAX_LIMIT}. Если страница заполнена полностью, идентификатор последней
+ * записи возвращается в заголовке {@link #NEXT_CURSOR}; его значение передается в {@code after}
+ * для получения следующей страницы. Отсутствие заголовка означает, что страница последняя.
+ * </p>
+ */
+final class Paging {
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 500;
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    private Paging() {
+    }
+
+    /**
+     * Приводит запрошенный размер страницы к допустимому диапазону.
+     *
+     * @param requested размер страницы из запроса или {@code null}.
+     * @return размер страницы от 1 до {@link #MAX_LIMIT}.
+     */
+    static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(requested, MAX_LIMIT));
+    }
+
+    /**
+     * Создает ответ 200 OK с заголовком курсора следующей страницы, если он нужен.
+     *
+     * @param page  записи текущей страницы.
+     * @param limit размер страницы, с которым выполнялся запрос.
+     * @param id    функция получения идентификатора записи.
+     * @param <T>   тип записи.
+     * @return построитель ответа для установки тела.
+     */
+    static <T> ResponseEntity.BodyBuilder ok(List<T> page, int limit, ToIntFunction<T> id) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() == limit) {
+            builder.header(NEXT_CURSOR, String.valueOf(id.applyAsInt(page.get(page.size() - 1))));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кэш готовых ответов для часто запрашиваемых списков.
+ * <p>
+ * Ответ хранится уже сериализованным в байты в формате, выбранном по заголовку {@code Accept}
+ * ({@link ResponseFormats}), а если он не меньше порога сжатия — еще и в виде gzip.
+ * Клиенту, поддерживающему gzip, отдается сжатый вариант, остальным — исходный; повторные запросы
+ * не обращаются ни к хранилищу, ни к Jackson. Ключ кэша включает тег версии таблицы, поэтому после
+ * изменения данных старые ответы просто перестают запрашиваться и вытесняются по весу или сроку.
+ * </p>
+ * <p>
+ * Если версия неизвестна (тег не выдается сразу после изменения), ответ сериализуется без сохранения.
+ * Кэшируются только успешные ответы: исключение загрузчика передается вызывающему коду.
+ * </p>
+ */
+public class ResponseCache {
+    private static final String GZIP = "gzip";
+
+    private final ResponseFormats formats;
+    private final int compressThreshold;
+    private final Cache<Key, Encoded> cache;
+
+    /**
+     * Создает кэш ответов.
+     *
+     * @param formats           доступные форматы тела ответа.
+     * @param maximumWeight     максимальный суммарный размер ответов в байтах.
+     * @param compressThreshold минимальный размер ответа в байтах, с которого хранится сжатый вариант.
+     * @param expireAfterAccess время жизни ответа с последнего обращения.
+     */
+    public ResponseCache(ResponseFormats formats, long maximumWeight, int compressThreshold, Duration expireAfterAccess) {
+        this.formats = formats;
+        this.compressThreshold = compressThreshold;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Key key, Encoded encoded) -> encoded.weight())
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Возвращает готовый ответ из кэша или строит, сериализует и сохраняет его.
+     *
+     * @param key     ключ запроса, однозначно определяющий тело при неизменных данных, например
+     *                {@code Arrays.asList("cars", after, limit)}; должен корректно реализовывать {@code equals}.
+     * @param version тег версии данных или {@code null}, если ответ нельзя сохранять.
+     * @param request текущий запрос для выбора формата и сжатого варианта.
+     * @param loader  построение ответа с телом-объектом.
+     * @return ответ с телом в виде байтов выбранного формата.
+     */
+    public ResponseEntity<byte[]> get(Object key, String version, WebRequest request, Supplier<ResponseEntity<?>> loader) {
+        MediaType format = formats.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        Encoded encoded = version == null
+                ? encode(loader.get(), format)
+                : cache.get(new Key(key, version, format), ignored -> encode(loader.get(), format));
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(encoded.headers());
+        headers.setContentType(format);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        byte[] body = encoded.body();
+        if (encoded.gzip() != null) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (acceptEncoding != null && acceptEncoding.contains(GZIP)) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+                body = encoded.gzip();
+            }
+        }
+        return new ResponseEntity<>(body, headers, encoded.status());
+    }
+
+    /**
+     * Возвращает статистику кэша ответов.
+     *
+     * @return количество ответов, их суммарный размер и доля попаданий.
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction ->
+                eviction.weightedSize().ifPresent(weight -> result.put("weight", weight)));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private Encoded encode(ResponseEntity<?> response, MediaType format) {
+        try {
+            byte[] body = formats.mapper(format).writeValueAsBytes(response.getBody());
+            return new Encoded(response.getStatusCode(), response.getHeaders(), body,
+                    body.length >= compressThreshold ? gzip(body) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private record Key(Object query, String version, MediaType format) {
+    }
+
+    private record Encoded(HttpStatus status, HttpHeaders headers, byte[] body, byte[] gzip) {
+        int weight() {
+            return 128 + body.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
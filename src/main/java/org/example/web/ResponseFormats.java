@@ -0,0 +1,102 @@
+package org.example.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Форматы тела ответа, выбираемые по заголовку {@code Accept}.
+ * <p>
+ * JSON остается форматом по умолчанию: он выбирается при отсутствии заголовка, при {@code *}{@code /*} и при
+ * нераспознанном значении. Для внутренних потребителей доступны двоичные CBOR, Smile и MessagePack;
+ * в них число с плавающей точкой и дата кодируются без преобразования в текст. Двоичные форматы строятся
+ * копированием {@link ObjectMapper} приложения с заменой фабрики, поэтому модули и настройки сериализации общие.
+ * </p>
+ */
+public class ResponseFormats {
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String MSGPACK_VALUE = "application/x-msgpack";
+    public static final MediaType SMILE = MediaType.valueOf(SMILE_VALUE);
+    public static final MediaType MSGPACK = MediaType.valueOf(MSGPACK_VALUE);
+
+    private final Map<MediaType, ObjectMapper> mappers = new LinkedHashMap<>();
+
+    /**
+     * Создает набор форматов.
+     *
+     * @param jsonMapper   {@link ObjectMapper} для JSON, совпадающий с используемым Spring MVC.
+     * @param objectMapper {@link ObjectMapper} приложения, на основе которого строятся двоичные форматы.
+     */
+    public ResponseFormats(ObjectMapper jsonMapper, ObjectMapper objectMapper) {
+        mappers.put(MediaType.APPLICATION_JSON, jsonMapper);
+        mappers.put(MediaType.APPLICATION_CBOR, objectMapper.copyWith(new CBORFactory()));
+        mappers.put(SMILE, objectMapper.copyWith(new SmileFactory()));
+        mappers.put(MSGPACK, objectMapper.copyWith(new MessagePackFactory()));
+    }
+
+    /**
+     * Выбирает формат ответа по заголовку {@code Accept} с учетом порядка и параметра {@code q}.
+     *
+     * @param accept значение заголовка или {@code null}.
+     * @return выбранный тип содержимого.
+     */
+    public MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            for (MediaType format : mappers.keySet()) {
+                if (type.includes(format)) {
+                    return format;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Возвращает {@link ObjectMapper} для формата.
+     *
+     * @param format тип содержимого, выбранный {@link #negotiate(String)}.
+     * @return {@link ObjectMapper} формата.
+     */
+    public ObjectMapper mapper(MediaType format) {
+        return mappers.get(format);
+    }
+
+    /**
+     * Создает преобразователи Spring MVC для двоичных форматов.
+     *
+     * @return преобразователи CBOR, Smile и MessagePack.
+     */
+    public List<HttpMessageConverter<?>> binaryConverters() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        mappers.forEach((format, mapper) -> {
+            if (!MediaType.APPLICATION_JSON.equals(format)) {
+                converters.add(new AbstractJackson2HttpMessageConverter(mapper, format) {
+                });
+            }
+        });
+        return converters;
+    }
+}
@@ -1,13 +1,18 @@
 package org.example.web;
 
+import org.example.dto.LookupItemDTO;
 import org.example.dto.UserDTO;
+import org.example.mapper.UserMapper;
 import org.example.model.User;
+import org.example.repository.Projection;
+import org.example.repository.UserColumn;
 import org.example.service.UserService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/users")
@@ -19,22 +24,50 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<List<UserDTO>> getAll() {
-        List<User> users = service.getAll();
-        return ResponseEntity.ok(service.getAllDTO(users));
+    public ResponseEntity<List<?>> getAll(@RequestParam(value = "after", defaultValue = "0") int after,
+                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                          @RequestParam(value = "expand", defaultValue = "false") boolean expand,
+                                          @RequestParam(value = "fields", required = false) String fields) {
+        int pageSize = Paging.limit(limit);
+        Projection<UserColumn> projection = Projection.parse(UserColumn.class, fields);
+        if (projection != null) {
+            List<Projection.Row> rows = service.getPage(after, pageSize, projection);
+            return Paging.ok(rows, pageSize, Projection.Row::id).body(Projection.values(rows));
+        }
+        List<User> users = expand(service.getPage(after, pageSize), expand);
+        return Paging.ok(users, pageSize, User::getUserId).body(service.getAllDTO(users));
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<LookupItemDTO<UserDTO>>> getByIds(@RequestParam("ids") List<Integer> ids) {
+        Set<Integer> distinct = Lookup.distinct(ids);
+        if (distinct == null) {
+            return Lookup.tooLarge();
+        }
+        return Lookup.ok(ids, service.getByIds(distinct), UserMapper.INSTANCE::getUserDTO, "User");
     }
 
     @GetMapping("/filter")
-    public ResponseEntity<List<UserDTO>> getAllFiltered(@RequestParam(value = "name-filter", required = false) String nameFilter,
-                                                        @RequestParam(value = "params", required = false) String params) {
-        List<User> users = service.getFilteredUsers(nameFilter, params);
+    public ResponseEntity<List<?>> getAllFiltered(@RequestParam(value = "name-filter", required = false) String nameFilter,
+                                                  @RequestParam(value = "params", required = false) String params,
+                                                  @RequestParam(value = "expand", defaultValue = "false") boolean expand,
+                                                  @RequestParam(value = "fields", required = false) String fields) {
+        Projection<UserColumn> projection = Projection.parse(UserColumn.class, fields);
+        if (projection != null) {
+            return ResponseEntity.ok(Projection.values(service.getFilteredUsers(nameFilter, params, projection)));
+        }
+        List<User> users = expand(service.getFilteredUsers(nameFilter, params), expand);
         return ResponseEntity.ok(service.getAllDTO(users));
     }
 
     @GetMapping("/sort")
-    public ResponseEntity<List<UserDTO>> getAllSorted(@RequestParam(value = "params", required = false) String params) {
-        List<User> users = service.getSortedUsers(params);
-        return ResponseEntity.ok(service.getAllDTO(users));
+    public ResponseEntity<List<UserDTO>> getAllSorted(@RequestParam(value = "params", required = false) String params,
+                                                      @RequestParam(value = "after", defaultValue = "0") int after,
+                                                      @RequestParam(value = "limit", required = false) Integer limit,
+                                                      @RequestParam(value = "expand", defaultValue = "false") boolean expand) {
+        int pageSize = Paging.limit(limit);
+        List<User> users = expand(service.getSortedUsers(params, after, pageSize), expand);
+        return Paging.ok(users, pageSize, User::getUserId).body(service.getAllDTO(users));
     }
 
     @PutMapping
@@ -46,4 +79,7 @@ public class UserController {
         }
     }
 
+    private List<User> expand(List<User> users, boolean expand) {
+        return expand ? service.expand(users) : users;
+    }
 }
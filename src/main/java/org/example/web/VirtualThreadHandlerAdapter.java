@@ -0,0 +1,57 @@
+package org.example.web;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Выполняет обработчики запросов в исполнителе асинхронных запросов Spring MVC.
+ * <p>
+ * Если в {@code configureAsyncSupport} задан исполнитель (с {@code server.virtual-threads} это исполнитель
+ * виртуальных потоков), аргументы обработчика разбираются в потоке сервера, а сам метод контроллера
+ * возвращается Spring MVC как {@link Callable}. Запрос переходит в асинхронный режим, поток сервера освобождается,
+ * метод выполняется в исполнителе, а результат записывается при повторной асинхронной передаче запроса
+ * ({@code ASYNC dispatch}) обычными обработчиками возвращаемых значений и {@code @ExceptionHandler}.
+ * Цепочка фильтров при этом вызывается только контейнером и только в его потоке.
+ * </p>
+ * <p>
+ * Методы без возвращаемого значения (потоковая выгрузка пишет прямо в {@code HttpServletResponse})
+ * выполняются как обычно. Без исполнителя адаптер ничем не отличается от {@link RequestMappingHandlerAdapter}.
+ * </p>
+ */
+public class VirtualThreadHandlerAdapter extends RequestMappingHandlerAdapter {
+    private boolean offload;
+
+    @Override
+    public void setTaskExecutor(AsyncTaskExecutor taskExecutor) {
+        super.setTaskExecutor(taskExecutor);
+        offload = taskExecutor != null;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        if (!offload || handlerMethod.isVoid()) {
+            return super.createInvocableHandlerMethod(handlerMethod);
+        }
+        return new OffloadedHandlerMethod(handlerMethod);
+    }
+
+    private static final class OffloadedHandlerMethod extends ServletInvocableHandlerMethod {
+
+        private OffloadedHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer,
+                                       Object... providedArgs) throws Exception {
+            Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);
+            return (Callable<Object>) () -> doInvoke(args);
+        }
+    }
+}
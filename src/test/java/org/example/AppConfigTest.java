@@ -3,20 +3,30 @@ package org.example;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.example.aop.UserAuditAspect;
+import org.example.cache.EntityCache;
+import org.example.model.Car;
+import org.example.model.Order;
+import org.example.model.User;
 import org.example.repository.AbstractStorageTest;
+import org.example.repository.CarIndex;
 import org.example.repository.CarStorage;
+import org.example.repository.CopyStorage;
 import org.example.repository.OrderStorage;
+import org.example.repository.RoleStorage;
 import org.example.repository.UserStorage;
 import org.example.service.CarService;
 import org.example.service.OrderService;
 import org.example.service.UserService;
 import org.example.util.ObjectValidator;
+import org.example.util.RequestCoalescer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
+import java.time.Duration;
+
 @Configuration
 public class AppConfigTest {
 
@@ -47,34 +57,64 @@ public class AppConfigTest {
         return objectMapper;
     }
 
+    @Bean(name = "carCacheTest")
+    public EntityCache<Car> carCache() {
+        return new EntityCache<>("car", 1_000, (id, car) -> 1, Duration.ofMinutes(5));
+    }
+
+    @Bean(name = "orderCacheTest")
+    public EntityCache<Order> orderCache() {
+        return new EntityCache<>("order", 1_000, (id, order) -> 1, Duration.ofMinutes(5));
+    }
+
+    @Bean(name = "userCacheTest")
+    public EntityCache<User> userCache() {
+        return new EntityCache<>("user", 1_000, (id, user) -> 1, Duration.ofMinutes(5));
+    }
+
+    @Bean(name = "carIndexTest")
+    public CarIndex carIndex() {
+        return new CarIndex();
+    }
+
     @Bean(name = "carStorageTest")
     public CarStorage carStorage() {
-        return new CarStorage(jdbcTemplate(), namedParameterJdbcTemplate());
+        return new CarStorage(jdbcTemplate(), namedParameterJdbcTemplate(), carCache(), carIndex());
     }
 
     @Bean(name = "orderStorageTest")
     public OrderStorage orderStorage() {
-        return new OrderStorage(jdbcTemplate(), namedParameterJdbcTemplate());
+        return new OrderStorage(jdbcTemplate(), namedParameterJdbcTemplate(), orderCache());
     }
 
     @Bean(name = "userStorageTest")
     public UserStorage userStorage() {
-        return new UserStorage(jdbcTemplate(), namedParameterJdbcTemplate());
+        return new UserStorage(jdbcTemplate(), namedParameterJdbcTemplate(), userCache());
+    }
+
+    @Bean(name = "roleStorageTest")
+    public RoleStorage roleStorage() {
+        return new RoleStorage(jdbcTemplate());
+    }
+
+    @Bean(name = "copyStorageTest")
+    public CopyStorage copyStorage() {
+        return new CopyStorage(jdbcTemplate());
     }
 
     @Bean(name = "carServiceTest")
     public CarService carService() {
-        return new CarService(carStorage(), objectValidator());
+        return new CarService(carStorage(), objectValidator(), requestCoalescer());
     }
 
     @Bean(name = "orderServiceTest")
     public OrderService orderService() {
-        return new OrderService(orderStorage(), objectValidator());
+        return new OrderService(orderStorage(), objectValidator(), requestCoalescer());
     }
 
     @Bean(name = "userServiceTest")
     public UserService userService() {
-        return new UserService(userStorage(), objectValidator());
+        return new UserService(userStorage(), roleStorage(), orderStorage(), objectValidator());
     }
 
     @Bean(name = "loggingAspectTest")
@@ -86,5 +126,10 @@ public class AppConfigTest {
     public ObjectValidator objectValidator() {
         return new ObjectValidator();
     }
+
+    @Bean(name = "requestCoalescerTest")
+    public RequestCoalescer requestCoalescer() {
+        return new RequestCoalescer();
+    }
 }
 
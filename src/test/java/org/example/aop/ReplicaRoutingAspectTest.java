@@ -0,0 +1,130 @@
+package org.example.aop;
+
+import org.example.config.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.Cookie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тестовый класс для проверки функциональности {@link ReplicaRoutingAspect}.
+ */
+@DisplayName("Тестирование класса ReplicaRoutingAspect")
+class ReplicaRoutingAspectTest {
+    private static final long STICKY_MILLIS = 5_000;
+
+    private final ReplicaRoutingAspect aspect = new ReplicaRoutingAspect(STICKY_MILLIS);
+    private Reader reader;
+    private MockMvc mockMvc;
+
+    /**
+     * Оборачивает тестовый сервис аспектом и регистрирует аспект как перехватчик запросов,
+     * как это делает {@code AppConfig}.
+     */
+    @BeforeEach
+    void setUp() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Reader());
+        factory.addAspect(aspect);
+        reader = factory.getProxy();
+        mockMvc = MockMvcBuilders.standaloneSetup(new ProbeController(reader))
+                .addInterceptors(aspect)
+                .build();
+    }
+
+    /**
+     * Проверяет, что изменяющий запрос получает cookie привязки к основной базе и сам читает с основной базы,
+     * а запрос GET cookie не получает и читает с реплики.
+     */
+    @Test
+    @DisplayName("Проверка установки cookie изменяющим запросом")
+    void writeSetsStickyCookie() throws Exception {
+        long before = System.currentTimeMillis();
+        Cookie sticky = mockMvc.perform(post("/probe"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("false"))
+                .andExpect(cookie().exists(ReplicaRoutingAspect.STICKY_COOKIE))
+                .andExpect(cookie().httpOnly(ReplicaRoutingAspect.STICKY_COOKIE, true))
+                .andExpect(cookie().path(ReplicaRoutingAspect.STICKY_COOKIE, "/"))
+                .andReturn().getResponse().getCookie(ReplicaRoutingAspect.STICKY_COOKIE);
+
+        mockMvc.perform(get("/probe"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("true"))
+                .andExpect(cookie().doesNotExist(ReplicaRoutingAspect.STICKY_COOKIE));
+        assertThat(Long.parseLong(sticky.getValue())).isBetween(before + STICKY_MILLIS, System.currentTimeMillis() + STICKY_MILLIS);
+    }
+
+    /**
+     * Проверяет, что чтение с действующей cookie выполняется на основной базе, а с истекшей
+     * или некорректной cookie — на реплике.
+     */
+    @Test
+    @DisplayName("Проверка чтения с основной базы в окне привязки")
+    void stickyCookieRoutesReadsToPrimary() throws Exception {
+        Cookie sticky = mockMvc.perform(post("/probe"))
+                .andReturn().getResponse().getCookie(ReplicaRoutingAspect.STICKY_COOKIE);
+        Cookie expired = new Cookie(ReplicaRoutingAspect.STICKY_COOKIE, String.valueOf(System.currentTimeMillis() - 1));
+        Cookie malformed = new Cookie(ReplicaRoutingAspect.STICKY_COOKIE, "soon");
+
+        mockMvc.perform(get("/probe").cookie(sticky)).andExpect(content().string("false"));
+        mockMvc.perform(get("/probe").cookie(expired)).andExpect(content().string("true"));
+        mockMvc.perform(get("/probe").cookie(malformed)).andExpect(content().string("true"));
+    }
+
+    /**
+     * Проверяет, что вне HTTP-запроса метод {@link ReadOnly} читает с реплики, а признак чтения
+     * восстанавливается после вызова.
+     */
+    @Test
+    @DisplayName("Проверка маршрутизации вне запроса")
+    void outsideRequestReadsReplica() {
+        boolean replica = reader.readsReplica();
+
+        assertAll(
+                () -> assertThat(replica).isTrue(),
+                () -> assertThat(ReplicaRoutingDataSource.isReadOnly()).isFalse()
+        );
+    }
+
+    static class Reader {
+
+        @ReadOnly
+        public boolean readsReplica() {
+            return ReplicaRoutingDataSource.isReadOnly();
+        }
+    }
+
+    @RestController
+    static class ProbeController {
+        private final Reader reader;
+
+        ProbeController(Reader reader) {
+            this.reader = reader;
+        }
+
+        @GetMapping("/probe")
+        public boolean read() {
+            return reader.readsReplica();
+        }
+
+        @PostMapping("/probe")
+        public boolean write() {
+            return reader.readsReplica();
+        }
+    }
+}
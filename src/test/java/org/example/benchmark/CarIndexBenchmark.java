@@ -0,0 +1,110 @@
+package org.example.benchmark;
+
+import org.example.cache.EntityCache;
+import org.example.model.Car;
+import org.example.repository.CarIndex;
+import org.example.repository.CarSearch;
+import org.example.repository.CarStorage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение поиска автомобилей по индексу {@link CarIndex} в памяти с запросом к PostgreSQL.
+ * <p>
+ * Таблица заполняется {@link #ROWS} автомобилями в контейнере PostgreSQL; для запроса созданы составные индексы
+ * по каждому атрибуту, как в миграции v.1.1. Замер запроса включает сетевой обмен с базой данных и разбор строк,
+ * то есть ту работу, которую индекс в памяти заменяет. Запуск:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.example.benchmark.CarIndexBenchmark -Dexec.classpathScope=test}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class CarIndexBenchmark {
+    private static final int ROWS = 1_000_000;
+
+    private final CarSearch selective = CarSearch.parse("Brand7,Brand11", "new", "2015,2016", "50000", "60000");
+    private final CarSearch broad = CarSearch.parse("Brand3", null, null, null, null);
+
+    private PostgreSQLContainer<?> postgres;
+    private SingleConnectionDataSource dataSource;
+    private CarStorage storage;
+
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16.3");
+        postgres.start();
+        dataSource = new SingleConnectionDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE SCHEMA car_shop;
+                CREATE TABLE car_shop.car (
+                    car_id SERIAL PRIMARY KEY,
+                    brand TEXT,
+                    model TEXT,
+                    year INTEGER,
+                    price NUMERIC,
+                    condition TEXT
+                );
+                INSERT INTO car_shop.car (brand, model, year, price, condition)
+                SELECT 'Brand' || i % 50, 'Model' || i % 1000, 2000 + i % 25, 10000 + (i * 7919) % 90000,
+                       CASE i % 3 WHEN 0 THEN 'new' WHEN 1 THEN 'good' ELSE 'used' END
+                FROM generate_series(1, 1000000) AS i;
+                CREATE INDEX car_brand_idx ON car_shop.car (brand, car_id);
+                CREATE INDEX car_condition_idx ON car_shop.car (condition, car_id);
+                CREATE INDEX car_year_idx ON car_shop.car (year, car_id);
+                CREATE INDEX car_price_idx ON car_shop.car (price, car_id);
+                ANALYZE car_shop.car;
+                """);
+        CarIndex index = new CarIndex();
+        storage = new CarStorage(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                new EntityCache<>("car", 1_000, (id, car) -> 1, Duration.ofMinutes(1)), index);
+        index.refresh();
+        if (index.search(broad) == null || (int) index.stats().get("rows") != ROWS) {
+            throw new IllegalStateException("Car index was not built");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public List<Car> selectiveIndex() {
+        return storage.search(selective);
+    }
+
+    @Benchmark
+    public List<Car> selectiveSql() {
+        return storage.searchInDatabase(selective);
+    }
+
+    @Benchmark
+    public List<Car> broadIndex() {
+        return storage.search(broad);
+    }
+
+    @Benchmark
+    public List<Car> broadSql() {
+        return storage.searchInDatabase(broad);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CarIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
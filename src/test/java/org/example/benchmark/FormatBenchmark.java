@@ -0,0 +1,102 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.dto.CarDTO;
+import org.example.dto.OrderDTO;
+import org.example.web.ResponseFormats;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сравнение форматов тела ответа {@link ResponseFormats} на странице автомобилей и заказов.
+ * <p>
+ * Замеряется сериализация и разбор страницы из {@link #PAGE} элементов в каждом формате. Размер тела без сжатия
+ * и после gzip печатается при подготовке состояния, так как JMH измеряет только время. Запуск:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.example.benchmark.FormatBenchmark -Dexec.classpathScope=test}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatBenchmark {
+    private static final int PAGE = 1_000;
+
+    @Param({"application/json", "application/cbor", ResponseFormats.SMILE_VALUE, ResponseFormats.MSGPACK_VALUE})
+    private String format;
+
+    @Param({"cars", "orders"})
+    private String entity;
+
+    private List<?> page;
+    private ObjectMapper mapper;
+    private CollectionType type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ResponseFormats formats = new ResponseFormats(Jackson2ObjectMapperBuilder.json().build(),
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        mapper = formats.mapper(MediaType.valueOf(format));
+        if ("cars".equals(entity)) {
+            List<CarDTO> cars = new ArrayList<>(PAGE);
+            for (int i = 0; i < PAGE; i++) {
+                cars.add(new CarDTO("Brand" + i % 50, "Model" + i % 1000, 2000 + i % 25,
+                        10000 + (i * 7919) % 90000, i % 3 == 0 ? "new" : "used"));
+            }
+            page = cars;
+            type = mapper.getTypeFactory().constructCollectionType(List.class, CarDTO.class);
+        } else {
+            List<OrderDTO> orders = new ArrayList<>(PAGE);
+            for (int i = 0; i < PAGE; i++) {
+                orders.add(new OrderDTO(i % 100 + 1, i % 1000 + 1, LocalDate.of(2024, 1, 1).plusDays(i % 365),
+                        i % 2 == 0 ? "заказ оформлен" : "заказ выполнен"));
+            }
+            page = orders;
+            type = mapper.getTypeFactory().constructCollectionType(List.class, OrderDTO.class);
+        }
+        encoded = mapper.writeValueAsBytes(page);
+        System.out.printf("%n%s %s: %d bytes, %d bytes gzip%n", entity, format, encoded.length, gzip(encoded).length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<?> decode() throws IOException {
+        return mapper.readValue(encoded, type);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
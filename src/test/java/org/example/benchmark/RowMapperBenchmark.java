@@ -0,0 +1,119 @@
+package org.example.benchmark;
+
+import org.example.mapper.CarRowMapper;
+import org.example.mapper.UserRowMapper;
+import org.example.model.Car;
+import org.example.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@link BeanPropertyRowMapper} с индексными преобразователями {@link CarRowMapper} и {@link UserRowMapper}.
+ * <p>
+ * Строки берутся из {@link CachedRowSet} в памяти, поэтому замер не включает сетевой обмен и работу драйвера.
+ * Запуск: {@code mvn test-compile exec:java -Dexec.mainClass=org.example.benchmark.RowMapperBenchmark -Dexec.classpathScope=test}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+    private static final int ROWS = 1_000;
+
+    private final RowMapper<Car> beanCarMapper = BeanPropertyRowMapper.newInstance(Car.class);
+    private final RowMapper<User> beanUserMapper = BeanPropertyRowMapper.newInstance(User.class);
+    private CachedRowSet cars;
+    private CachedRowSet users;
+
+    @Setup
+    public void setUp() throws SQLException {
+        cars = rowSet(new String[]{"car_id", "brand", "model", "year", "price", "condition"},
+                new int[]{Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.NUMERIC, Types.VARCHAR});
+        for (int i = 1; i <= ROWS; i++) {
+            cars.moveToInsertRow();
+            cars.updateInt(1, i);
+            cars.updateString(2, "Brand" + i % 50);
+            cars.updateString(3, "Model" + i);
+            cars.updateInt(4, 2000 + i % 25);
+            cars.updateBigDecimal(5, BigDecimal.valueOf(10_000 + i, 2));
+            cars.updateString(6, i % 2 == 0 ? "new" : "good");
+            cars.insertRow();
+        }
+        cars.moveToCurrentRow();
+
+        users = rowSet(new String[]{"user_id", "login", "password", "name", "age", "city"},
+                new int[]{Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR});
+        for (int i = 1; i <= ROWS; i++) {
+            users.moveToInsertRow();
+            users.updateInt(1, i);
+            users.updateString(2, "login" + i);
+            users.updateString(3, "password" + i);
+            users.updateString(4, "Name" + i % 100);
+            users.updateInt(5, 18 + i % 60);
+            users.updateString(6, "City" + i % 20);
+            users.insertRow();
+        }
+        users.moveToCurrentRow();
+    }
+
+    @Benchmark
+    public void carBeanProperty(Blackhole blackhole) throws SQLException {
+        mapAll(cars, beanCarMapper, blackhole);
+    }
+
+    @Benchmark
+    public void carIndexed(Blackhole blackhole) throws SQLException {
+        mapAll(cars, CarRowMapper.INSTANCE, blackhole);
+    }
+
+    @Benchmark
+    public void userBeanProperty(Blackhole blackhole) throws SQLException {
+        mapAll(users, beanUserMapper, blackhole);
+    }
+
+    @Benchmark
+    public void userIndexed(Blackhole blackhole) throws SQLException {
+        mapAll(users, UserRowMapper.INSTANCE, blackhole);
+    }
+
+    private static <T> void mapAll(CachedRowSet rowSet, RowMapper<T> mapper, Blackhole blackhole) throws SQLException {
+        rowSet.beforeFirst();
+        int rowNum = 0;
+        while (rowSet.next()) {
+            blackhole.consume(mapper.mapRow(rowSet, rowNum++));
+        }
+    }
+
+    private static CachedRowSet rowSet(String[] columns, int[] types) throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            metaData.setColumnName(i + 1, columns[i]);
+            metaData.setColumnLabel(i + 1, columns[i]);
+            metaData.setColumnType(i + 1, types[i]);
+        }
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        return rowSet;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
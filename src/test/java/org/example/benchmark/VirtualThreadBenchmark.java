@@ -0,0 +1,132 @@
+package org.example.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.cache.EntityCache;
+import org.example.config.ConnectionLimiter;
+import org.example.config.ReplicaRoutingDataSource;
+import org.example.repository.CarIndex;
+import org.example.repository.CarStorage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочное сравнение обработки запросов в потоках пула сервера и в виртуальных потоках.
+ * <p>
+ * Один замер — {@link #REQUESTS} запросов, поступивших одновременно. Запрос ожидает {@link #CLIENT_MILLIS} вне
+ * базы данных (медленный клиент, обращение к внешнему сервису) и читает страницу автомобилей из PostgreSQL через
+ * пул из {@link #POOL_SIZE} соединений. В режиме {@code platform} запросы обрабатывает пул из {@link #SERVER_THREADS}
+ * потоков, как {@code maxThreads} Tomcat по умолчанию; в режиме {@code virtual} каждый запрос получает виртуальный
+ * поток, а обращения к базе ограничивает {@link ConnectionLimiter}. Пропускная способность равна
+ * {@link #REQUESTS}, деленному на время замера.
+ * </p>
+ * <p>
+ * Режим {@code virtual} требует Java 21 и новее. Запуск:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.example.benchmark.VirtualThreadBenchmark -Dexec.classpathScope=test}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    private static final int REQUESTS = 20_000;
+    private static final int CLIENT_MILLIS = 20;
+    private static final int POOL_SIZE = 10;
+    private static final int SERVER_THREADS = 200;
+    private static final int ROWS = 100_000;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    private PostgreSQLContainer<?> postgres;
+    private HikariDataSource pool;
+    private ReplicaRoutingDataSource dataSource;
+    private CarStorage storage;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        postgres = new PostgreSQLContainer<>("postgres:16.3");
+        postgres.start();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setConnectionTimeout(30_000);
+        pool = new HikariDataSource(config);
+        dataSource = new ReplicaRoutingDataSource(pool, Map.of(), 1000, 2000);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE SCHEMA car_shop;
+                CREATE TABLE car_shop.car (
+                    car_id SERIAL PRIMARY KEY,
+                    brand TEXT,
+                    model TEXT,
+                    year INTEGER,
+                    price NUMERIC,
+                    condition TEXT
+                );
+                INSERT INTO car_shop.car (brand, model, year, price, condition)
+                SELECT 'Brand' || i % 50, 'Model' || i % 1000, 2000 + i % 25, 10000 + (i * 7919) % 90000, 'new'
+                FROM generate_series(1, 100000) AS i;
+                ANALYZE car_shop.car;
+                """);
+        storage = new CarStorage(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                new EntityCache<>("car", 1_000, (id, car) -> 1, Duration.ofMinutes(1)), new CarIndex());
+        if ("virtual".equals(mode)) {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            dataSource.setConnectionLimiter(new ConnectionLimiter(POOL_SIZE, 30_000));
+        } else {
+            executor = Executors.newFixedThreadPool(SERVER_THREADS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%s: %s%n", mode, dataSource.stats());
+        executor.shutdownNow();
+        dataSource.close();
+        pool.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public int requests() throws InterruptedException, ExecutionException {
+        List<Future<Integer>> responses = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(executor.submit(() -> {
+                Thread.sleep(CLIENT_MILLIS);
+                return storage.getPage(ThreadLocalRandom.current().nextInt(ROWS), 20).size();
+            }));
+        }
+        int rows = 0;
+        for (Future<Integer> response : responses) {
+            rows += response.get();
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VirtualThreadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
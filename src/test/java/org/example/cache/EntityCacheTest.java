@@ -0,0 +1,51 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+/**
+ * Тестовый класс для проверки функциональности {@link EntityCache}.
+ */
+@DisplayName("Тестирование класса EntityCache")
+class EntityCacheTest {
+
+    /**
+     * Проверяет, что значение, прочитанное групповой загрузкой до инвалидации строки, не остается в кэше,
+     * а без инвалидации загруженные значения кэшируются.
+     */
+    @Test
+    @DisplayName("Проверка групповой загрузки во время инвалидации")
+    void bulkLoadRacingInvalidation() {
+        EntityCache<String> cache = new EntityCache<>("car", 1024, (id, value) -> 1, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        Map<Integer, String> stale = cache.getAll(List.of(1, 2), ids -> {
+            loads.incrementAndGet();
+            cache.invalidate(1);
+            return Map.of(1, "old-1", 2, "old-2");
+        });
+        Map<Integer, String> reloaded = cache.getAll(List.of(1, 2), ids -> {
+            loads.incrementAndGet();
+            return Map.of(1, "new-1", 2, "new-2");
+        });
+        Map<Integer, String> cached = cache.getAll(List.of(1, 2), ids -> {
+            loads.incrementAndGet();
+            return Map.of();
+        });
+
+        assertAll(
+                () -> assertThat(stale).containsExactly(entry(1, "old-1"), entry(2, "old-2")),
+                () -> assertThat(reloaded).containsExactly(entry(1, "new-1"), entry(2, "new-2")),
+                () -> assertThat(cached).containsExactly(entry(1, "new-1"), entry(2, "new-2")),
+                () -> assertThat(loads).hasValue(2)
+        );
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+/**
+ * Тестовый класс для проверки функциональности {@link IdSet}.
+ */
+@DisplayName("Тестирование класса IdSet")
+class IdSetTest {
+    private static final int ROWS = 3 * IdSet.RECENT_IDS;
+    private static final int MISSING = 100;
+
+    /**
+     * Проверяет, что карта отвечает «нет» только для идентификаторов не выше отметки последнего построения,
+     * а более новые идентификаторы, которые могли вставить другие узлы, считаются возможно существующими.
+     */
+    @Test
+    @DisplayName("Проверка отметки последнего построения")
+    void rejectsOnlySettledIds() {
+        IdSet ids = new IdSet(consumer -> IntStream.rangeClosed(1, ROWS).filter(id -> id != MISSING).forEach(consumer));
+        boolean beforeBuild = ids.mightContain(MISSING);
+        ids.refresh();
+
+        assertAll(
+                () -> assertThat(beforeBuild).isTrue(),
+                () -> assertThat(ids.mightContain(MISSING)).isFalse(),
+                () -> assertThat(ids.mightContain(MISSING + 1)).isTrue(),
+                () -> assertThat(ids.isSettled(ROWS - IdSet.RECENT_IDS)).isTrue(),
+                () -> assertThat(ids.mightContain(ROWS - IdSet.RECENT_IDS + 1)).isTrue(),
+                () -> assertThat(ids.mightContain(ROWS + 1)).isTrue(),
+                () -> assertThat(ids.isSettled(ROWS + 1)).isFalse()
+        );
+    }
+
+    /**
+     * Проверяет, что удаленный идентификатор ниже отметки отклоняется, а после сброса карта до нового
+     * построения ничего не отклоняет.
+     */
+    @Test
+    @DisplayName("Проверка удаления и сброса")
+    void removeAndReset() {
+        IdSet ids = new IdSet(consumer -> IntStream.rangeClosed(1, ROWS).forEach(consumer));
+        ids.refresh();
+        ids.remove(MISSING);
+        boolean removed = ids.mightContain(MISSING);
+        ids.reset();
+
+        assertAll(
+                () -> assertThat(removed).isFalse(),
+                () -> assertThat(ids.mightContain(MISSING)).isTrue()
+        );
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Тестовый класс для проверки функциональности {@link ConnectionLimiter}.
+ */
+@DisplayName("Тестирование класса ConnectionLimiter")
+class ConnectionLimiterTest {
+
+    /**
+     * Проверяет, что сверх лимита соединение не выдается по истечении времени ожидания, а закрытие соединения,
+     * в том числе повторное, возвращает ровно одно разрешение.
+     */
+    @Test
+    @DisplayName("Проверка ограничения одновременно выданных соединений")
+    void limitsConcurrentConnections() throws SQLException {
+        ConnectionLimiter limiter = new ConnectionLimiter(1, 50);
+        Connection raw = mock(Connection.class);
+        Connection first = limiter.acquire(() -> raw);
+        assertThatThrownBy(() -> limiter.acquire(() -> raw)).isInstanceOf(SQLTransientConnectionException.class);
+        first.close();
+        first.close();
+        Connection second = limiter.acquire(() -> raw);
+        assertAll(
+                () -> verify(raw, times(2)).close(),
+                () -> assertThat(limiter.stats()).containsEntry("active", 1).containsEntry("timeouts", 1L),
+                () -> assertThatThrownBy(() -> limiter.acquire(() -> raw)).isInstanceOf(SQLTransientConnectionException.class)
+        );
+        second.close();
+        assertThat(limiter.stats()).containsEntry("active", 0);
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Тестовый класс для проверки функциональности {@link ReplicaRoutingDataSource}.
+ */
+@DisplayName("Тестирование класса ReplicaRoutingDataSource")
+class ReplicaRoutingDataSourceTest {
+    private static final long MAX_LAG_MILLIS = 1_000;
+    private static final long CHECK_INTERVAL_MILLIS = 60_000;
+    private static final long WAIT_MILLIS = 5_000;
+
+    private final DataSource primary = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private ReplicaRoutingDataSource routing;
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.setReadOnly(false);
+        if (routing != null) {
+            routing.close();
+        }
+    }
+
+    /**
+     * Проверяет, что без реплик чтение выполняется на основной базе и учитывается как чтение с основной базы.
+     */
+    @Test
+    @DisplayName("Проверка маршрутизации без реплик")
+    void emptyReplicasRouteToPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        routing = new ReplicaRoutingDataSource(primary, Map.of(), MAX_LAG_MILLIS, CHECK_INTERVAL_MILLIS);
+        ReplicaRoutingDataSource.setReadOnly(true);
+
+        assertAll(
+                () -> assertThat(routing.getConnection()).isSameAs(primaryConnection),
+                () -> assertThat(routing.stats())
+                        .containsEntry("healthy", List.of())
+                        .containsEntry("primaryReads", 1L)
+                        .containsEntry("replicaReads", 0L)
+        );
+    }
+
+    /**
+     * Проверяет, что при ошибке получения соединения с исправной репликой чтение выполняется на основной базе,
+     * реплика исключается из маршрутизации и следующие чтения к ней не обращаются.
+     */
+    @Test
+    @DisplayName("Проверка переключения на основную базу при отказе реплики")
+    void replicaFailureFallsBackToPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        HikariDataSource replica = replica(0);
+        routing = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica), MAX_LAG_MILLIS, CHECK_INTERVAL_MILLIS);
+        awaitHealthy(List.of("replica-1"));
+        when(replica.getConnection()).thenThrow(new SQLTransientConnectionException("connection refused"));
+        ReplicaRoutingDataSource.setReadOnly(true);
+
+        Connection failedOver = routing.getConnection();
+        Connection next = routing.getConnection();
+        assertAll(
+                () -> assertThat(failedOver).isSameAs(primaryConnection),
+                () -> assertThat(next).isSameAs(primaryConnection),
+                () -> assertThat(routing.stats())
+                        .containsEntry("healthy", List.of())
+                        .containsEntry("failovers", 1L)
+                        .containsEntry("replicaReads", 1L)
+                        .containsEntry("primaryReads", 1L),
+                () -> verify(replica, times(2)).getConnection()
+        );
+    }
+
+    /**
+     * Проверяет, что реплика с отставанием больше допустимого исключается из маршрутизации,
+     * а чтения выполняются на реплике без отставания.
+     */
+    @Test
+    @DisplayName("Проверка исключения отстающей реплики")
+    void laggingReplicaExcluded() throws SQLException {
+        HikariDataSource lagging = replica(5 * MAX_LAG_MILLIS);
+        HikariDataSource fresh = replica(0);
+        Connection freshConnection = fresh.getConnection();
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        replicas.put("lagging", lagging);
+        replicas.put("fresh", fresh);
+        routing = new ReplicaRoutingDataSource(primary, replicas, MAX_LAG_MILLIS, CHECK_INTERVAL_MILLIS);
+        awaitHealthy(List.of("fresh"));
+        ReplicaRoutingDataSource.setReadOnly(true);
+
+        assertAll(
+                () -> assertThat(routing.getConnection()).isSameAs(freshConnection),
+                () -> assertThat(routing.getConnection()).isSameAs(freshConnection),
+                () -> assertThat(routing.stats().get("lagMillis"))
+                        .isEqualTo(Map.of("lagging", 5 * MAX_LAG_MILLIS, "fresh", 0L)),
+                () -> verify(primary, times(0)).getConnection()
+        );
+    }
+
+    /**
+     * Создает пул реплики, соединения которого возвращают заданное отставание на запрос проверки.
+     */
+    private static HikariDataSource replica(long lagMillis) throws SQLException {
+        HikariDataSource replica = mock(HikariDataSource.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMillis);
+        return replica;
+    }
+
+    /**
+     * Ожидает завершения первой фоновой проверки реплик.
+     */
+    private void awaitHealthy(List<String> expected) {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!expected.equals(routing.stats().get("healthy"))) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Replica check did not mark %s as healthy", expected);
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -37,6 +37,8 @@ public class Users {
     public static final List<User> AGE_PHILTER = List.of(administrator, client3);
     public static final List<User> USERS_NAME_SORT = List.of(administrator, manager2, manager1, client3, client1, client2);
     public static final List<User> USERS_AGE_SORT = List.of(client1, administrator, client3, manager2, manager1, client2);
+    public static final List<User> USERS_CITY_AGE_DESC_FIRST_PAGE = List.of(client1, client2, manager2);
+    public static final List<User> USERS_CITY_AGE_DESC_SECOND_PAGE = List.of(administrator, client3, manager1);
     public static Map<Integer, User> testUsers = new HashMap<>();
 
     static {
@@ -1,8 +1,11 @@
 package org.example.repository;
 
 import lombok.Getter;
+import org.example.cache.InvalidationTarget;
+import org.example.cache.Refreshable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 
@@ -10,6 +13,7 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 @SuppressWarnings("resource")
 
@@ -25,6 +29,20 @@ public abstract class AbstractStorageTest {
             .withUsername("test_user")
             .withPassword("test_pass");
 
+    /**
+     * Кэши и индексы из тестовой конфигурации. Контекст Spring переиспользуется между тестами,
+     * а таблицы создаются заново, поэтому кэши очищаются перед каждым тестом.
+     */
+    @Autowired(required = false)
+    private List<InvalidationTarget> caches;
+
+    /**
+     * Наборы идентификаторов и индексы, которые в приложении строит фоновый поток. В тестах они перестраиваются
+     * синхронно после пересоздания таблиц, чтобы результат не зависел от расписания.
+     */
+    @Autowired(required = false)
+    private List<Refreshable> rebuilt;
+
     /**
      * Метод, выполняющий начальную настройку перед каждым тестом.
      * <p>
@@ -43,6 +61,12 @@ public abstract class AbstractStorageTest {
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        if (caches != null) {
+            caches.forEach(InvalidationTarget::evictAll);
+        }
+        if (rebuilt != null) {
+            rebuilt.forEach(Refreshable::refresh);
+        }
     }
 
     /**
@@ -2,6 +2,10 @@ package org.example.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.AppConfigTest;
+import org.example.cache.EntityCache;
+import org.example.cache.PgInvalidationBus;
+import org.example.dto.BatchItemResultDTO;
+import org.example.dto.CarDTO;
 import org.example.model.Car;
 import org.example.service.CarService;
 import org.example.util.NotFoundException;
@@ -9,15 +13,20 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.example.dataTest.Cars.*;
 import static org.junit.jupiter.api.Assertions.assertAll;
 
@@ -35,6 +44,22 @@ public class CarStorageTest extends AbstractStorageTest {
     @Qualifier("carServiceTest")
     private CarService service;
 
+    @Autowired
+    @Qualifier("carStorageTest")
+    private CarStorage storage;
+
+    @Autowired
+    @Qualifier("carIndexTest")
+    private CarIndex carIndex;
+
+    @Autowired
+    @Qualifier("jdbcTemplateTest")
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("carCacheTest")
+    private EntityCache<Car> carCache;
+
     /**
      * Проверяет корректность работы метода {@link CarStorage#getAll()}.
      * Тестирует получение всех автомобилей и сравнение их с предустановленным списком.
@@ -52,6 +77,35 @@ public class CarStorageTest extends AbstractStorageTest {
         );
     }
 
+    /**
+     * Проверяет корректность работы метода {@link CarStorage#getPage(int, int)}.
+     * Тестирует последовательное получение страниц по ключу.
+     */
+    @Test
+    @DisplayName("Проверка постраничного получения автомобилей")
+    void getPage() {
+        List<Car> firstPage = service.getPage(0, 2);
+        List<Car> secondPage = service.getPage(firstPage.get(1).getCar_id(), 2);
+        List<Car> lastPage = service.getPage(secondPage.get(1).getCar_id(), 2);
+        assertAll(
+                () -> assertThat(firstPage).containsExactly(car1, car2),
+                () -> assertThat(secondPage).containsExactly(car3, car4),
+                () -> assertThat(lastPage).containsExactly(car5)
+        );
+    }
+
+    /**
+     * Проверяет корректность работы метода {@link CarStorage#streamAll(Consumer)}.
+     * Тестирует, что потоковая выгрузка передает все автомобили в порядке идентификаторов.
+     */
+    @Test
+    @DisplayName("Проверка потоковой выгрузки автомобилей")
+    void streamAll() {
+        List<Car> exported = new ArrayList<>();
+        service.export(exported::add);
+        assertThat(exported).containsExactlyElementsOf(CAR_LIST);
+    }
+
     /**
      * Тестирует метод {@link CarStorage#getById(int)}.
      * <p>
@@ -66,6 +120,162 @@ public class CarStorageTest extends AbstractStorageTest {
         assertThat(car2).isEqualTo(car);
     }
 
+    /**
+     * Проверяет, что повторное чтение автомобиля обслуживается кэшем, а обновление через
+     * {@link CarStorage#saveOrUpdate(Car)} удаляет устаревшую запись из кэша.
+     */
+    @Test
+    @DisplayName("Проверка кэширования и инвалидации автомобиля по идентификатору")
+    void getByIdCached() {
+        long hits = (long) carCache.stats().get("hits");
+        long misses = (long) carCache.stats().get("misses");
+        service.getById(carUpdate.getCar_id());
+        service.getById(carUpdate.getCar_id());
+        service.saveOrUpdate(carUpdate);
+        Car updated = service.getById(carUpdate.getCar_id());
+        assertAll(
+                () -> assertThat(updated).isEqualTo(carUpdate),
+                () -> assertThat((long) carCache.stats().get("hits") - hits).isEqualTo(1),
+                () -> assertThat((long) carCache.stats().get("misses") - misses).isEqualTo(2)
+        );
+    }
+
+    /**
+     * Проверяет выборку только запрошенных полей через {@link Projection}: страница читается запросом
+     * с указанными столбцами, а фильтр по марке — из индекса в памяти, и в обоих случаях свойства
+     * следуют в порядке параметра {@code fields}.
+     */
+    @Test
+    @DisplayName("Проверка выборки запрошенных полей автомобилей")
+    void getPageWithFields() {
+        Projection<CarColumn> projection = Projection.parse(CarColumn.class, "price, brand,price");
+        List<Projection.Row> page = service.getPage(0, 2, projection);
+        List<Projection.Row> filtered = service.getFilteredCars("brand", "Volvo", projection);
+        assertAll(
+                () -> assertThat(page).extracting(Projection.Row::id).containsExactly(car1.getCar_id(), car2.getCar_id()),
+                () -> assertThat(page.get(0).values()).containsExactly(entry("price", 25000.0), entry("brand", "BMW")),
+                () -> assertThat(Projection.values(filtered)).containsExactly(
+                        Map.of("price", 17500.0, "brand", "Volvo"), Map.of("price", 25000.0, "brand", "Volvo")),
+                () -> assertThatThrownBy(() -> Projection.parse(CarColumn.class, "brand,password"))
+                        .isInstanceOf(NotFoundException.class)
+        );
+    }
+
+    /**
+     * Проверяет, что поиск по индексу {@link CarIndex} совпадает с поиском запросом к базе данных,
+     * в том числе после изменения и удаления автомобилей.
+     */
+    @Test
+    @DisplayName("Проверка поиска автомобилей по индексу в памяти")
+    void searchByIndex() {
+        CarSearch search = CarSearch.parse("Volvo,BMW", "good", null, "17000", "25000");
+        assertThat(service.search(search)).containsExactly(car2, car4);
+        service.saveOrUpdate(carUpdate);
+        service.delete(car2.getCar_id());
+        CarSearch anyPrice = CarSearch.parse("BMW", null, "2021,2024", null, null);
+        assertAll(
+                () -> assertThat(service.search(search)).containsExactly(carUpdate),
+                () -> assertThat(service.search(anyPrice)).containsExactly(car1, carUpdate),
+                () -> assertThat(service.search(anyPrice)).isEqualTo(storage.searchInDatabase(anyPrice)),
+                () -> assertThat((long) carIndex.stats().get("searches")).isPositive()
+        );
+    }
+
+    /**
+     * Проверяет, что индекс хранит строку, перечитанную из базы данных, а не объект вызывающего кода:
+     * запоздавшее применение первого из двух обновлений одной строки не возвращает ее старые значения.
+     */
+    @Test
+    @DisplayName("Проверка порядка обновлений в индексе")
+    void indexReloadsCommittedRow() {
+        CarSearch volvo = CarSearch.parse("Volvo", null, null, null, null);
+        service.search(volvo);
+        service.saveOrUpdate(new Car(car4.getCar_id(), "Volvo", "S60", 2019, 25000, "good"));
+        jdbcTemplate.update("UPDATE car_shop.car SET brand = 'BMW' WHERE car_id = ?", car4.getCar_id());
+        carIndex.reload(List.of(car4.getCar_id()));
+        assertThat(service.search(volvo)).isEqualTo(storage.searchInDatabase(volvo))
+                .extracting(Car::getCar_id).doesNotContain(car4.getCar_id());
+    }
+
+    /**
+     * Проверяет групповое чтение автомобилей {@link CarStorage#getByIds(java.util.Collection)}: найденные автомобили
+     * возвращаются по идентификатору, отсутствующие пропускаются, а прочитанные сохраняются в кэш.
+     */
+    @Test
+    @DisplayName("Проверка получения автомобилей по списку идентификаторов")
+    void getByIds() {
+        service.getById(car1.getCar_id());
+        long hits = (long) carCache.stats().get("hits");
+        Map<Integer, Car> found = service.getByIds(List.of(car3.getCar_id(), NOT_EXIST_ID, car1.getCar_id()));
+        assertAll(
+                () -> assertThat(found).containsOnly(entry(car1.getCar_id(), car1), entry(car3.getCar_id(), car3)),
+                () -> assertThat((long) carCache.stats().get("hits") - hits).isEqualTo(1),
+                () -> assertThat(service.getById(car3.getCar_id())).isEqualTo(car3),
+                () -> assertThat((long) carCache.stats().get("hits") - hits).isEqualTo(2)
+        );
+    }
+
+    /**
+     * Проверяет, что запрос несуществующего автомобиля с идентификатором выше отметки карты идентификаторов
+     * доходит до базы данных, а не отклоняется: такую строку мог вставить другой узел. Исключение не содержит
+     * стека вызовов, а вставленный автомобиль сразу становится доступен.
+     */
+    @Test
+    @DisplayName("Проверка поиска в базе автомобилей выше отметки карты идентификаторов")
+    void getByIdMissingAboveMark() {
+        long misses = (long) carCache.stats().get("misses");
+        long rejected = (long) carCache.stats().get("rejected");
+        assertThatThrownBy(() -> service.getById(999))
+                .isInstanceOf(NotFoundException.class)
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+        assertThatThrownBy(() -> service.getById(999)).isInstanceOf(NotFoundException.class);
+        Car created = service.saveOrUpdate(new Car("Lada", "Vesta", 2023, 12000, "new"));
+        assertAll(
+                () -> assertThat((long) carCache.stats().get("rejected") - rejected).isZero(),
+                () -> assertThat((long) carCache.stats().get("misses") - misses).isGreaterThanOrEqualTo(2),
+                () -> assertThat(service.getById(created.getCar_id()).getModel()).isEqualTo("Vesta")
+        );
+    }
+
+    /**
+     * Проверяет, что изменение автомобиля на одном узле удаляет его из кэша другого узла
+     * через {@link PgInvalidationBus}, а собственные сообщения узла не очищают его кэш повторно.
+     */
+    @Test
+    @DisplayName("Проверка инвалидации кэша между узлами")
+    void invalidationAcrossNodes() throws InterruptedException {
+        EntityCache<Car> localCache = new EntityCache<>("car", 1024, (id, car) -> 1, Duration.ofMinutes(1));
+        EntityCache<Car> remoteCache = new EntityCache<>("car", 1024, (id, car) -> 1, Duration.ofMinutes(1));
+        PgInvalidationBus.ConnectionFactory connections = () -> DriverManager.getConnection(
+                getPostgresContainer().getJdbcUrl(), getPostgresContainer().getUsername(), getPostgresContainer().getPassword());
+        try (PgInvalidationBus local = new PgInvalidationBus(jdbcTemplate, connections, List.of(localCache));
+             PgInvalidationBus remote = new PgInvalidationBus(jdbcTemplate, connections, List.of(remoteCache))) {
+            awaitConnected(local);
+            awaitConnected(remote);
+            localCache.get(1, id -> car1);
+            localCache.get(2, id -> car2);
+            remoteCache.get(1, id -> car1);
+            remoteCache.get(2, id -> car2);
+            localCache.invalidate(1);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while ((long) remoteCache.stats().get("size") > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertAll(
+                    () -> assertThat(remoteCache.stats().get("size")).isEqualTo(1L),
+                    () -> assertThat(localCache.stats().get("size")).isEqualTo(1L),
+                    () -> assertThat((long) remote.stats().get("received")).isPositive()
+            );
+        }
+    }
+
+    private static void awaitConnected(PgInvalidationBus bus) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!(boolean) bus.stats().get("connected") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
     /**
      * Проверяет корректность работы метода {@link CarStorage#saveOrUpdate(Car)} для обновления существующего автомобиля.
      * Тестирует обновление автомобиля и проверку его изменений.
@@ -79,6 +289,22 @@ public class CarStorageTest extends AbstractStorageTest {
 
     }
 
+    /**
+     * Проверяет корректность работы метода {@link CarStorage#saveAll(List)} для пакетного добавления автомобилей.
+     * Тестирует, что корректные автомобили добавляются, а для некорректных возвращаются ошибки валидации.
+     */
+    @Test
+    @DisplayName("Проверка пакетного добавления автомобилей")
+    void saveAll() {
+        List<BatchItemResultDTO> results = service.saveAll(List.of(newCarDTO, new CarDTO("", "X5", 2020, -1, "new"), updatedCarDTO));
+        assertAll(
+                () -> assertThat(results).extracting(BatchItemResultDTO::getId).containsExactly(6, null, 7),
+                () -> assertThat(results.get(1).getErrors()).hasSize(2),
+                () -> assertThat(service.getById(6).getModel()).isEqualTo(newCarDTO.getModel()),
+                () -> assertThat(service.getAll()).hasSize(7)
+        );
+    }
+
     /**
      * Проверяет корректность работы метода {@link CarStorage#delete(int)} для удаления автомобиля.
      * Тестирует удаление автомобиля и проверку его отсутствия в хранилище.
@@ -102,7 +328,7 @@ public class CarStorageTest extends AbstractStorageTest {
     }
 
     /**
-     * Проверяет корректность работы метода {@link CarStorage#filter(Function, Predicate)} для фильтрации автомобилей.
+     * Проверяет корректность работы метода {@link CarStorage#filter(CarColumn, Object)} для фильтрации автомобилей.
      * Тестирует фильтрацию автомобилей по марке, состоянию и цене.
      */
     @Test
@@ -118,6 +344,16 @@ public class CarStorageTest extends AbstractStorageTest {
         );
     }
 
+    /**
+     * Проверяет, что фильтр по столбцу вне белого списка {@link CarColumn} отклоняется до обращения к базе данных.
+     */
+    @Test
+    @DisplayName("Проверка фильтрации по неизвестному полю")
+    void filterUnknownColumn() {
+        assertThatThrownBy(() -> service.getFilteredCars("car_id; DROP TABLE car_shop.car", "1"))
+                .isInstanceOf(NotFoundException.class);
+    }
+
     /**
      * Скрипт для создания таблицы автомобилей в testContainer
      */
@@ -0,0 +1,118 @@
+package org.example.repository;
+
+import org.example.AppConfigTest;
+import org.example.model.Car;
+import org.example.service.CarService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.example.dataTest.Cars.*;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+/**
+ * Тестовый класс для проверки функциональности {@link CopyStorage}.
+ * Этот класс использует контейнер PostgreSQL для выполнения интеграционных тестов.
+ */
+@Testcontainers
+@SpringJUnitConfig(AppConfigTest.class)
+@DisplayName("Тестирование класса CopyStorage")
+class CopyStorageTest extends AbstractStorageTest {
+
+    @Autowired
+    @Qualifier("copyStorageTest")
+    private CopyStorage copyStorage;
+
+    @Autowired
+    @Qualifier("carServiceTest")
+    private CarService carService;
+
+    @Autowired
+    @Qualifier("jdbcTemplateTest")
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Проверяет, что выгруженная через {@link CopyStorage#exportTable} таблица после очистки
+     * полностью восстанавливается через {@link CopyStorage#importTable}, а последовательность идентификаторов
+     * продолжается после загруженных значений.
+     */
+    @Test
+    @DisplayName("Проверка выгрузки и загрузки таблицы автомобилей")
+    void exportAndImport() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = copyStorage.exportTable(CopyTable.CAR, out);
+        jdbcTemplate.update("TRUNCATE car_shop.car RESTART IDENTITY");
+
+        long imported = copyStorage.importTable(CopyTable.CAR, new ByteArrayInputStream(out.toByteArray()));
+        Car saved = carService.saveOrUpdate(new Car(carSave.getBrand(), carSave.getModel(), carSave.getYear(),
+                carSave.getPrice(), carSave.getCondition()));
+        assertAll(
+                () -> assertThat(out.toString(StandardCharsets.UTF_8)).startsWith("car_id,brand,model,year,price,condition"),
+                () -> assertThat(exported).isEqualTo(CAR_LIST.size()),
+                () -> assertThat(imported).isEqualTo(CAR_LIST.size()),
+                () -> assertThat(carService.getAll()).startsWith(car1, car2, car3, car4, car5),
+                () -> assertThat(saved.getCar_id()).isEqualTo(CAR_LIST.size() + 1)
+        );
+    }
+
+    /**
+     * Проверяет, что загрузка в таблицу, идентификаторы которой не выдаются последовательностью,
+     * завершается ошибкой и не оставляет загруженных строк.
+     */
+    @Test
+    @DisplayName("Проверка отмены загрузки в таблицу без последовательности идентификаторов")
+    void importWithoutSequence() {
+        jdbcTemplate.execute("ALTER TABLE car_shop.car ALTER COLUMN car_id DROP DEFAULT; DROP SEQUENCE car_shop.car_car_id_seq");
+        byte[] csv = "car_id,brand,model,year,price,condition\n6,Lada,Vesta,2022,12000.00,new\n".getBytes(StandardCharsets.UTF_8);
+
+        assertAll(
+                () -> assertThatThrownBy(() -> copyStorage.importTable(CopyTable.CAR, new ByteArrayInputStream(csv)))
+                        .isInstanceOf(IllegalStateException.class),
+                () -> assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM car_shop.car", Integer.class))
+                        .isEqualTo(CAR_LIST.size())
+        );
+    }
+
+    /**
+     * Скрипт для создания таблицы автомобилей в testContainer
+     */
+    @Override
+    protected String createTable() {
+        return """
+                DROP TABLE IF EXISTS car_shop.car;
+                CREATE TABLE car_shop.car (
+                    car_id SERIAL PRIMARY KEY,
+                    brand TEXT,
+                    model TEXT,
+                    year INTEGER,
+                    price NUMERIC,
+                    condition TEXT
+                );
+                """;
+    }
+
+    /**
+     * Скрипт для заполнения таблицы автомобилей в testContainer
+     */
+    @Override
+    protected String populateTable() {
+        return """
+                INSERT INTO car_shop.car (brand, model, year, price, condition) VALUES
+                              ('BMW', 'M4', 2024, 25000.00, 'new'),
+                              ('Volvo', 'S40', 2023, 17500.00, 'good'),
+                              ('Mercedes', 'SLS', 2024, 25000.00, 'new'),
+                              ('Volvo', 'S60', 2019, 25000.00, 'good'),
+                              ('Audi', 'Q3', 2020, 19500.80, 'good');
+                """;
+    }
+}
@@ -2,8 +2,10 @@ package org.example.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.AppConfigTest;
+import org.example.dto.StatusChangeDTO;
 import org.example.model.Order;
 import org.example.service.OrderService;
+import org.example.util.ConflictException;
 import org.example.util.NotFoundException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,9 +14,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.function.Function;
-import java.util.function.Predicate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -101,6 +102,34 @@ class OrderStorageTest extends AbstractStorageTest {
         assertThatThrownBy(() -> service.changeStatus(NOT_EXIST_ID, newStatus)).isInstanceOf(NotFoundException.class);
     }
 
+    /**
+     * Проверяет корректность работы метода {@link OrderStorage#changeStatus(int, String, String)}.
+     * Тестирует отказ в изменении статуса, если текущий статус заказа отличается от ожидаемого.
+     */
+    @Test
+    @DisplayName("Проверка изменения статуса заказа с неверным ожидаемым статусом")
+    void changeStatusConflict() {
+        assertThatThrownBy(() -> service.changeStatus(order1.getOrderId(), newStatus, canceledStatus))
+                .isInstanceOf(ConflictException.class);
+        assertThat(service.getById(order1.getOrderId()).getStatus()).isEqualTo(order1.getStatus());
+    }
+
+    /**
+     * Проверяет корректность работы метода {@link OrderStorage#changeStatus(Collection, String, String)}.
+     * Тестирует массовое изменение статуса, при котором изменяются только заказы в ожидаемом статусе.
+     */
+    @Test
+    @DisplayName("Проверка массового изменения статуса заказов")
+    void changeStatusBulk() {
+        List<Integer> updated = service.changeStatus(new StatusChangeDTO(
+                List.of(order1.getOrderId(), order2.getOrderId(), NOT_EXIST_ID), null, null, newStatus, order1.getStatus()));
+        assertAll(
+                () -> assertThat(updated).containsExactly(order1.getOrderId()),
+                () -> assertThat(service.getById(order1.getOrderId()).getStatus()).isEqualTo(newStatus),
+                () -> assertThat(service.getById(order2.getOrderId()).getStatus()).isEqualTo(order2.getStatus())
+        );
+    }
+
     /**
      * Проверяет корректность работы метода {@link OrderStorage#canceled(int)} для отмены заказа.
      * Тестирует изменение статуса заказа на "отменен" и проверку обновленного статуса.
@@ -123,7 +152,7 @@ class OrderStorageTest extends AbstractStorageTest {
     }
 
     /**
-     * Проверяет корректность работы метода {@link OrderStorage#filter(Function, Predicate)} для фильтрации заказов по дате.
+     * Проверяет корректность работы метода {@link OrderStorage#filter(OrderColumn, Object)} для фильтрации заказов по дате.
      * Тестирует фильтрацию заказов по дате и проверку результата.
      */
     @Test
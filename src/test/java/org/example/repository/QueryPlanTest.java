@@ -0,0 +1,215 @@
+package org.example.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.LiquibaseException;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.example.AppConfigTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тестовый класс, защищающий запросы хранилищ от деградации планов выполнения.
+ * <p>
+ * Перед проверкой таблицы заполняются объемом данных, при котором планировщик перестает выбирать
+ * последовательное чтение «по умолчанию», к ним применяются индексы из changelog версии 1.1 и собирается статистика.
+ * Для каждого запроса хранилищ строится {@code EXPLAIN (FORMAT JSON)}; проверка не проходит, если в плане
+ * встречается {@code Seq Scan} или оценочная стоимость превышает бюджет запроса.
+ * </p>
+ */
+@Testcontainers
+@SpringJUnitConfig(AppConfigTest.class)
+@DisplayName("Проверка планов выполнения запросов хранилищ")
+class QueryPlanTest extends AbstractStorageTest {
+    private static final String INDEX_CHANGELOG = "db/changelog/v.1.1.car_shop/v.1.1.accumulate-changelog.xml";
+    private static final double POINT_BUDGET = 50;
+    private static final double FILTER_BUDGET = 5_000;
+    private static final double WIDE_FILTER_BUDGET = 20_000;
+    private static final Integer[] PAGE_USER_IDS = IntStream.rangeClosed(1_001, 1_050).boxed().toArray(Integer[]::new);
+
+    @Autowired
+    @Qualifier("jdbcTemplateTest")
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("objectMapperTest")
+    private ObjectMapper objectMapper;
+
+    /**
+     * Применяет changelog с индексами к заполненным таблицам и обновляет статистику планировщика.
+     */
+    @BeforeEach
+    void applyIndexes() throws SQLException, LiquibaseException {
+        try (Connection connection = DriverManager.getConnection(getPostgresContainer().getJdbcUrl(),
+                getPostgresContainer().getUsername(), getPostgresContainer().getPassword())) {
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            new Liquibase(INDEX_CHANGELOG, new ClassLoaderResourceAccessor(), database).update(new Contexts());
+        }
+        jdbcTemplate.execute("ANALYZE car_shop.car, car_shop.user, car_shop.orders, car_shop.user_roles");
+    }
+
+    @TestFactory
+    @DisplayName("Проверка отсутствия Seq Scan и превышения бюджета стоимости")
+    Stream<DynamicTest> plans() {
+        return queries().stream()
+                .map(query -> DynamicTest.dynamicTest(query.name(), () -> check(query)));
+    }
+
+    private List<Query> queries() {
+        List<Query> queries = new ArrayList<>();
+        queries.add(new Query("car by id", CarStorage.BY_ID, POINT_BUDGET, false, 4_242));
+        queries.add(new Query("car page", CarStorage.PAGE, POINT_BUDGET, false, 50_000, 50));
+        queries.add(new Query("car brand", CarStorage.filterQuery(CarColumn.BRAND), FILTER_BUDGET, false, "brand-7"));
+        queries.add(new Query("car model", CarStorage.filterQuery(CarColumn.MODEL), FILTER_BUDGET, false, "model-42"));
+        queries.add(new Query("car year", CarStorage.filterQuery(CarColumn.YEAR), FILTER_BUDGET, false, 2010));
+        queries.add(new Query("car price", CarStorage.filterQuery(CarColumn.PRICE), FILTER_BUDGET, false, new BigDecimal("25000")));
+        queries.add(new Query("car condition", CarStorage.filterQuery(CarColumn.CONDITION), WIDE_FILTER_BUDGET, true, "new"));
+        queries.add(new Query("user by id", UserStorage.BY_ID, POINT_BUDGET, false, 4_242));
+        queries.add(new Query("user page", UserStorage.PAGE, POINT_BUDGET, false, 50_000, 50));
+        queries.add(new Query("user name", UserStorage.filterQuery(UserColumn.NAME), FILTER_BUDGET, false, "name-42"));
+        queries.add(new Query("user age", UserStorage.filterQuery(UserColumn.AGE), FILTER_BUDGET, false, 33));
+        queries.add(new Query("user city", UserStorage.filterQuery(UserColumn.CITY), FILTER_BUDGET, false, "city-7"));
+        queries.add(new Query("order by id", OrderStorage.BY_ID, POINT_BUDGET, false, 4_242));
+        queries.add(new Query("order page", OrderStorage.PAGE, POINT_BUDGET, false, 50_000, 50));
+        queries.add(new Query("order user", OrderStorage.filterQuery(OrderColumn.USER_ID), FILTER_BUDGET, false, 42));
+        queries.add(new Query("order car", OrderStorage.filterQuery(OrderColumn.CAR_ID), FILTER_BUDGET, false, 42));
+        queries.add(new Query("order date", OrderStorage.filterQuery(OrderColumn.DATE), FILTER_BUDGET, false, LocalDate.parse("2024-08-12")));
+        queries.add(new Query("order status", OrderStorage.filterQuery(OrderColumn.STATUS), WIDE_FILTER_BUDGET, true, "canceled"));
+        SortKey byName = new SortKey(UserColumn.NAME, false);
+        SortKey byAgeDesc = new SortKey(UserColumn.AGE, true);
+        queries.add(new Query("user sort name", UserStorage.sortQuery(List.of(byName)), FILTER_BUDGET, false, 50));
+        queries.add(new Query("user sort name after", UserStorage.sortQuery(byName, false, true), FILTER_BUDGET, false,
+                "name-42", 4_242, 50));
+        queries.add(new Query("user sort name nulls", UserStorage.sortQuery(byName, true, false), FILTER_BUDGET, false, 50));
+        queries.add(new Query("user sort age desc", UserStorage.sortQuery(List.of(byAgeDesc)), FILTER_BUDGET, false, 50));
+        queries.add(new Query("user sort age desc after", UserStorage.sortQuery(byAgeDesc, false, true), FILTER_BUDGET, false,
+                33, 4_242, 50));
+        queries.add(new Query("user sort age desc nulls after", UserStorage.sortQuery(byAgeDesc, true, true), FILTER_BUDGET, false,
+                4_242, 50));
+        queries.add(new Query("user roles", RoleStorage.BY_USER, POINT_BUDGET, false, 42));
+        queries.add(new Query("page roles", RoleStorage.BY_USERS, FILTER_BUDGET, false, (Object) PAGE_USER_IDS));
+        queries.add(new Query("page orders", OrderStorage.BY_USERS, FILTER_BUDGET, false, (Object) PAGE_USER_IDS));
+        return queries;
+    }
+
+    private void check(Query query) throws Exception {
+        String json = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + query.sql(), String.class, query.args());
+        JsonNode plan = objectMapper.readTree(json).get(0).get("Plan");
+        assertThat(plan.get("Total Cost").asDouble())
+                .as("cost of %s: %s", query.name(), query.sql())
+                .isLessThanOrEqualTo(query.budget());
+        if (!query.allowSeqScan()) {
+            assertThat(nodeTypes(plan, new ArrayList<>()))
+                    .as("plan of %s: %s", query.name(), query.sql())
+                    .doesNotContain("Seq Scan");
+        }
+    }
+
+    private static List<String> nodeTypes(JsonNode node, List<String> types) {
+        types.add(node.get("Node Type").asText());
+        JsonNode children = node.get("Plans");
+        if (children != null) {
+            children.forEach(child -> nodeTypes(child, types));
+        }
+        return types;
+    }
+
+    /**
+     * Проверяемый запрос хранилища.
+     *
+     * @param name         имя проверки в отчете.
+     * @param sql          текст запроса, совпадающий с используемым в хранилище.
+     * @param budget       максимальная допустимая оценочная стоимость.
+     * @param allowSeqScan {@code true} для фильтров по столбцам с малым числом значений, где последовательное
+     *                     чтение оправдано и проверяется только стоимость.
+     * @param args         параметры запроса.
+     */
+    private record Query(String name, String sql, double budget, boolean allowSeqScan, Object... args) {
+    }
+
+    /**
+     * Скрипт для создания таблиц в testContainer
+     */
+    @Override
+    protected String createTable() {
+        return """
+                DROP TABLE IF EXISTS public.databasechangelog, public.databasechangeloglock;
+                DROP TABLE IF EXISTS car_shop.car, car_shop.user, car_shop.orders, car_shop.user_roles;
+                CREATE TABLE car_shop.car(
+                    car_id SERIAL PRIMARY KEY,
+                    brand TEXT NOT NULL,
+                    model TEXT NOT NULL,
+                    year INTEGER NOT NULL,
+                    price NUMERIC NOT NULL,
+                    condition TEXT NOT NULL
+                );
+                CREATE TABLE car_shop.user(
+                    user_id SERIAL PRIMARY KEY,
+                    login TEXT,
+                    password TEXT,
+                    name TEXT,
+                    age INTEGER,
+                    city TEXT
+                );
+                CREATE TABLE car_shop.orders(
+                    order_id SERIAL PRIMARY KEY,
+                    user_id INTEGER NOT NULL,
+                    car_id INTEGER NOT NULL,
+                    date DATE,
+                    status TEXT
+                );
+                CREATE TABLE car_shop.user_roles(
+                    role_id SERIAL PRIMARY KEY,
+                    user_id INTEGER,
+                    role TEXT
+                );
+                """;
+    }
+
+    /**
+     * Скрипт для заполнения таблиц в testContainer
+     */
+    @Override
+    protected String populateTable() {
+        return """
+                INSERT INTO car_shop.car (brand, model, year, price, condition)
+                SELECT 'brand-' || i % 200, 'model-' || i % 5000, 1990 + i % 35, (i % 2000) * 250,
+                       (ARRAY['new', 'good', 'used'])[1 + i % 3]
+                FROM generate_series(1, 100000) AS i;
+                INSERT INTO car_shop.user (login, password, name, age, city)
+                SELECT 'login-' || i, 'password-' || i, 'name-' || i % 5000, 18 + i % 60, 'city-' || i % 300
+                FROM generate_series(1, 100000) AS i;
+                INSERT INTO car_shop.orders (user_id, car_id, date, status)
+                SELECT 1 + i % 100000, 1 + (i * 7) % 100000, DATE '2022-01-01' + i % 1000,
+                       (ARRAY['заказ оформлен', 'готов к выдаче', 'canceled'])[1 + i % 3]
+                FROM generate_series(1, 100000) AS i;
+                INSERT INTO car_shop.user_roles (user_id, role)
+                SELECT 1 + i % 100000, (ARRAY['Администратор', 'Менеджер', 'Клиент'])[1 + i % 3]
+                FROM generate_series(1, 100000) AS i;
+                """;
+    }
+}
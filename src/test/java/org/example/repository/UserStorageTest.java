@@ -2,17 +2,34 @@ package org.example.repository;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.AppConfigTest;
+import org.example.cache.EntityCache;
 import org.example.dataTest.Users;
+import org.example.model.Order;
+import org.example.model.Roles;
 import org.example.model.User;
 import org.example.service.UserService;
 import org.example.util.NotFoundException;
+import org.example.util.ObjectValidator;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.example.dataTest.Users.*;
@@ -32,6 +49,18 @@ public class UserStorageTest extends AbstractStorageTest {
     @Qualifier("userServiceTest")
     private UserService service;
 
+    @Autowired
+    @Qualifier("userCacheTest")
+    private EntityCache<User> userCache;
+
+    @Autowired
+    @Qualifier("orderCacheTest")
+    private EntityCache<Order> orderCache;
+
+    @Autowired
+    @Qualifier("dataSourceTest")
+    private DataSource dataSource;
+
     /**
      * Проверяет корректность работы метода {@link UserService#getAll()} для получения всех пользователей.
      * Тестирует получение всех пользователей и их соответствие предустановленному списку {@link Users#USER_LIST}.
@@ -89,18 +118,137 @@ public class UserStorageTest extends AbstractStorageTest {
     }
 
     /**
-     * Проверяет корректность работы метода {@link UserService#getSortedUsers(String)} (Function)} для сортировки пользователей.
+     * Проверяет корректность работы метода {@link UserService#getSortedUsers(String, int, int)} для сортировки пользователей.
      * Тестирует сортировку пользователей по имени и возрасту, а также проверку результатов сортировки.
      */
     @Test
     @DisplayName("Проверка сортировки пользователей по критериям")
     void sort() {
         assertAll(
-                () -> assertThat(service.getSortedUsers("name")).containsAll(USERS_NAME_SORT),
-                () -> assertThat(service.getSortedUsers("age")).containsAll(USERS_AGE_SORT)
+                () -> assertThat(service.getSortedUsers("name", 0, USER_LIST.size())).containsExactlyElementsOf(USERS_NAME_SORT),
+                () -> assertThat(service.getSortedUsers("age:asc", 0, USER_LIST.size())).containsExactlyElementsOf(USERS_AGE_SORT)
+        );
+    }
+
+    /**
+     * Проверяет корректность работы метода {@link UserStorage#sort(List, int, int)} для сортировки по нескольким ключам.
+     * Тестирует сортировку по городу и убыванию возраста с переходом на следующую страницу по курсору.
+     */
+    @Test
+    @DisplayName("Проверка сортировки пользователей по нескольким ключам с курсором")
+    void sortMultiKeyPage() {
+        List<User> firstPage = service.getSortedUsers("city,-age", 0, 3);
+        int cursor = firstPage.get(firstPage.size() - 1).getUserId();
+        assertAll(
+                () -> assertThat(firstPage).containsExactlyElementsOf(USERS_CITY_AGE_DESC_FIRST_PAGE),
+                () -> assertThat(service.getSortedUsers("city,age:desc", cursor, 3)).containsExactlyElementsOf(USERS_CITY_AGE_DESC_SECOND_PAGE)
+        );
+    }
+
+    /**
+     * Проверяет переход по курсору при сортировке по одному столбцу, когда страница пересекает границу
+     * между строками со значением {@code NULL} и остальными строками в обоих направлениях.
+     */
+    @Test
+    @DisplayName("Проверка сортировки пользователей по одному ключу с курсором и NULL")
+    void sortSingleKeyPageWithNulls() {
+        new JdbcTemplate(dataSource).update("UPDATE car_shop.user SET age = NULL WHERE user_id = ?", client1.getUserId());
+        assertAll(
+                () -> assertThat(service.getSortedUsers("-age", 0, 2)).extracting(User::getUserId)
+                        .containsExactly(client1.getUserId(), client2.getUserId()),
+                () -> assertThat(service.getSortedUsers("-age", client1.getUserId(), 3)).extracting(User::getUserId)
+                        .containsExactly(client2.getUserId(), manager1.getUserId(), manager2.getUserId()),
+                () -> assertThat(service.getSortedUsers("age", client3.getUserId(), USER_LIST.size())).extracting(User::getUserId)
+                        .containsExactly(manager2.getUserId(), manager1.getUserId(), client2.getUserId(), client1.getUserId())
+        );
+    }
+
+    /**
+     * Проверяет, что курсор с идентификатором несуществующего пользователя отклоняется.
+     */
+    @Test
+    @DisplayName("Проверка сортировки пользователей с несуществующим курсором")
+    void sortUnknownCursor() {
+        assertThatThrownBy(() -> service.getSortedUsers("name", NOT_EXIST_ID, 3)).isInstanceOf(NotFoundException.class);
+    }
+
+    /**
+     * Проверяет, что сортировка по столбцу вне белого списка отклоняется.
+     */
+    @Test
+    @DisplayName("Проверка сортировки пользователей по неизвестному столбцу")
+    void sortUnknownColumn() {
+        assertThatThrownBy(() -> service.getSortedUsers("login", 0, 1)).isInstanceOf(NotFoundException.class);
+    }
+
+    /**
+     * Проверяет корректность работы метода {@link UserService#expand(List)} для загрузки ролей и заказов.
+     * Тестирует, что для страницы пользователей выполняется один запрос на пользователей и по одному запросу
+     * на каждую связь, независимо от количества пользователей.
+     */
+    @Test
+    @DisplayName("Проверка загрузки ролей и заказов пользователей без N+1 запросов")
+    void expandWithoutNPlusOne() {
+        AtomicInteger statements = new AtomicInteger();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(countingDataSource(statements));
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        UserService countedService = new UserService(new UserStorage(jdbcTemplate, namedParameterJdbcTemplate, userCache),
+                new RoleStorage(jdbcTemplate), new OrderStorage(jdbcTemplate, namedParameterJdbcTemplate, orderCache),
+                new ObjectValidator());
+
+        List<User> users = countedService.expand(countedService.getPage(0, USER_LIST.size()));
+        assertAll(
+                () -> assertThat(statements.get()).isEqualTo(3),
+                () -> assertThat(users).hasSize(USER_LIST.size()),
+                () -> assertThat(users.get(0).getRole()).containsExactlyInAnyOrder(Roles.ADMINISTRATOR, Roles.MANAGER),
+                () -> assertThat(users.get(2).getRole()).isEmpty(),
+                () -> assertThat(users.get(3).getOrders()).extracting(Order::getCarId).containsExactly(1, 2),
+                () -> assertThat(users.get(0).getOrders()).isEmpty()
+        );
+    }
+
+    /**
+     * Проверяет кэширование ролей в {@link RoleStorage}: повторное чтение обслуживается из кэша,
+     * а изменение ролей становится видно после {@link RoleStorage#invalidate(int)}.
+     */
+    @Test
+    @DisplayName("Проверка кэша ролей пользователей")
+    void roleCache() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        RoleStorage roleStorage = new RoleStorage(jdbcTemplate);
+        Map<Integer, Set<Roles>> first = roleStorage.getByIds(List.of(1, 2, 3));
+        jdbcTemplate.update("INSERT INTO car_shop.user_roles (user_id, role) VALUES (3, 'Менеджер')");
+        Set<Roles> cached = roleStorage.getById(3);
+        roleStorage.invalidate(3);
+        assertAll(
+                () -> assertThat(first.get(1)).containsExactlyInAnyOrder(Roles.ADMINISTRATOR, Roles.MANAGER),
+                () -> assertThat(first.get(3)).isEmpty(),
+                () -> assertThat(cached).isEmpty(),
+                () -> assertThat(roleStorage.getById(3)).containsExactly(Roles.MANAGER),
+                () -> assertThat(roleStorage.stats()).containsEntry("hits", 1L).containsEntry("misses", 4L)
         );
     }
 
+    private DataSource countingDataSource(AtomicInteger statements) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                                statements.incrementAndGet();
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+    }
+
     /**
      * Проверяет корректность работы метода {@link UserService#update(User)} для обновления данных пользователя.
      * Тестирует обновление данных пользователя и проверку, что обновленный пользователь корректно сохранен в хранилище.
@@ -118,14 +266,24 @@ public class UserStorageTest extends AbstractStorageTest {
     @Override
     protected String createTable() {
         return """
-                DROP TABLE IF EXISTS car_shop.user;
+                DROP TABLE IF EXISTS car_shop.user, car_shop.user_roles, car_shop.orders;
                 CREATE TABLE car_shop.user(
                 user_id SERIAL PRIMARY KEY,
                 login TEXT,
                 password TEXT,
                 name TEXT,
                 age INTEGER,
-                city TEXT)""";
+                city TEXT);
+                CREATE TABLE car_shop.user_roles(
+                role_id SERIAL PRIMARY KEY,
+                user_id INTEGER,
+                role TEXT);
+                CREATE TABLE car_shop.orders(
+                order_id SERIAL PRIMARY KEY,
+                user_id INTEGER,
+                car_id INTEGER,
+                date DATE,
+                status TEXT)""";
     }
 
     /**
@@ -140,7 +298,15 @@ public class UserStorageTest extends AbstractStorageTest {
                 ('manager2','manager2','Alexandr',34,'Moscow'),
                 ('client1','client1','Tanya',25,'London'),
                 ('client2','client2','Valera',45,'Milan'),
-                ('client3','client3','Robert',33,'Moscow')
+                ('client3','client3','Robert',33,'Moscow');
+                INSERT INTO car_shop.user_roles (user_id,role) VALUES
+                (1,'Администратор'),
+                (1,'Менеджер'),
+                (2,'Менеджер'),
+                (4,'Клиент');
+                INSERT INTO car_shop.orders (user_id,car_id,date,status) VALUES
+                (4,1,'2024-08-12','заказ оформлен'),
+                (4,2,'2024-08-13','готов к выдаче')
                 """;
     }
 }
@@ -0,0 +1,92 @@
+package org.example.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+/**
+ * Тестовый класс для проверки функциональности {@link AdaptiveLimiter}.
+ */
+@DisplayName("Тестирование класса AdaptiveLimiter")
+class AdaptiveLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Проверяет, что вызовы сверх предела сразу отклоняются, а после возврата разрешения снова принимаются.
+     */
+    @Test
+    @DisplayName("Проверка отказа при достижении предела")
+    void rejectsAboveLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(3, 1, 10, 1.5);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        boolean overLimit = limiter.tryAcquire();
+        limiter.ignore();
+        boolean afterRelease = limiter.tryAcquire();
+
+        assertAll(
+                () -> assertThat(overLimit).isFalse(),
+                () -> assertThat(afterRelease).isTrue(),
+                () -> assertThat(limiter.stats()).containsEntry("inFlight", 3).containsEntry("rejected", 1L)
+        );
+    }
+
+    /**
+     * Проверяет, что предел растет при стабильной задержке и полной загрузке
+     * и снижается до минимума, когда вызовы замедляются.
+     */
+    @Test
+    @DisplayName("Проверка изменения предела по задержке")
+    void limitFollowsLatency() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 100, 1.5);
+        for (int i = 0; i < 200; i++) {
+            call(limiter, FAST);
+        }
+        int grown = limiter.getLimit();
+        for (int i = 0; i < 5; i++) {
+            call(limiter, SLOW);
+        }
+
+        assertAll(
+                () -> assertThat(grown).isGreaterThan(10),
+                () -> assertThat(limiter.getLimit()).isLessThan(grown / 2)
+        );
+    }
+
+    /**
+     * Проверяет, что отказ базы данных уменьшает предел, но не ниже минимального.
+     */
+    @Test
+    @DisplayName("Проверка снижения предела при отказах")
+    void dropsReduceLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 100, 1.5);
+        for (int i = 0; i < 50; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.drop();
+        }
+
+        assertAll(
+                () -> assertThat(limiter.getLimit()).isEqualTo(2),
+                () -> assertThat(limiter.stats()).containsEntry("dropped", 50L).containsEntry("inFlight", 0)
+        );
+    }
+
+    /**
+     * Занимает все разрешения, чтобы предел мог расти, и возвращает их с заданным временем вызова.
+     */
+    private static void call(AdaptiveLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+}
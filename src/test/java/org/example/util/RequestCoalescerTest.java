@@ -0,0 +1,142 @@
+package org.example.util;
+
+import org.example.config.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+/**
+ * Тестовый класс для проверки функциональности {@link RequestCoalescer}.
+ */
+@DisplayName("Тестирование класса RequestCoalescer")
+class RequestCoalescerTest {
+    private static final int THREADS = 8;
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
+    /**
+     * Проверяет, что одновременные вызовы с одинаковым ключом выполняют загрузку один раз
+     * и получают один и тот же результат.
+     */
+    @Test
+    @DisplayName("Проверка объединения одновременных одинаковых вызовов")
+    void concurrentCallsShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.execute("car.getById", 1, () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return new Object();
+            })));
+            await(started);
+            for (int i = 1; i < THREADS; i++) {
+                results.add(executor.submit(() -> coalescer.execute("car.getById", 1, () -> {
+                    loads.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            while (collapsed() < THREADS - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            Object first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Проверяет, что после завершения загрузки следующий вызов снова обращается к хранилищу,
+     * а исключение загрузки передается вызывающему коду.
+     */
+    @Test
+    @DisplayName("Проверка отсутствия кэширования результата и передачи исключения")
+    void sequentialCallsLoadAgain() {
+        AtomicInteger loads = new AtomicInteger();
+        coalescer.execute("car.getById", 1, loads::incrementAndGet);
+        coalescer.execute("car.getById", 1, loads::incrementAndGet);
+        assertAll(
+                () -> assertThat(loads.get()).isEqualTo(2),
+                () -> assertThatThrownBy(() -> coalescer.execute("car.getById", 2, () -> {
+                    throw new NotFoundException("Car with id 2 not found");
+                })).isInstanceOf(NotFoundException.class),
+                () -> assertThat(collapsed()).isZero()
+        );
+    }
+
+    /**
+     * Проверяет, что вызов, читающий с основной базы, не присоединяется к загрузке с реплики.
+     */
+    @Test
+    @DisplayName("Проверка разделения загрузок с реплики и с основной базы")
+    void primaryReadDoesNotJoinReplicaRead() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> replicaRead = executor.submit(() -> {
+                ReplicaRoutingDataSource.setReadOnly(true);
+                try {
+                    return coalescer.execute("car.getById", 1, () -> {
+                        loads.incrementAndGet();
+                        started.countDown();
+                        await(release);
+                        return new Object();
+                    });
+                } finally {
+                    ReplicaRoutingDataSource.setReadOnly(false);
+                }
+            });
+            await(started);
+            Object primaryRead = coalescer.execute("car.getById", 1, () -> {
+                loads.incrementAndGet();
+                return new Object();
+            });
+            release.countDown();
+            assertAll(
+                    () -> assertThat(replicaRead.get(5, TimeUnit.SECONDS)).isNotSameAs(primaryRead),
+                    () -> assertThat(loads.get()).isEqualTo(2),
+                    () -> assertThat(collapsed()).isZero()
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long collapsed() {
+        Map<String, Long> counters = (Map<String, Long>) coalescer.stats().get("car.getById");
+        return counters == null ? 0 : counters.get("collapsed");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
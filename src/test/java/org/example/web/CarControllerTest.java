@@ -10,10 +10,13 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Duration;
+
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
@@ -29,6 +32,11 @@ class CarControllerTest {
     @Mock
     private CarService carService;
 
+    @Spy
+    private ResponseCache responseCache = new ResponseCache(new ResponseFormats(
+            new ObjectMapper().registerModule(new JavaTimeModule()), new ObjectMapper().registerModule(new JavaTimeModule())),
+            1 << 20, 64, Duration.ofMinutes(1));
+
     @InjectMocks
     private CarController controller;
 
@@ -1,23 +1,49 @@
 package org.example.web;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.example.config.AppConfig;
 import org.example.dto.OrderDTO;
+import org.example.dto.StatusChangeDTO;
+import org.example.model.Order;
 import org.example.service.OrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +56,11 @@ class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    @Spy
+    private ResponseCache responseCache = new ResponseCache(new ResponseFormats(
+            new ObjectMapper().registerModule(new JavaTimeModule()), new ObjectMapper().registerModule(new JavaTimeModule())),
+            1 << 20, 64, Duration.ofMinutes(1));
+
     @InjectMocks
     private OrderController controller;
 
@@ -82,6 +113,88 @@ class OrderControllerTest {
         mockMvc.perform(get("/orders/1")).andExpect(status().isOk());
     }
 
+    /**
+     * Тестирование условного запроса по тегу версии.
+     * Проверяет, что при совпадении {@code If-None-Match} возвращается 304 без чтения заказов,
+     * а при несовпадении — данные со слабым заголовком {@code ETag}.
+     */
+    @Test
+    @DisplayName("Условное получение заказа по ETag")
+    void getByIdNotModified() throws Exception {
+        when(orderService.etag()).thenReturn("order-1-7");
+        mockMvc.perform(get("/orders/1").header("If-None-Match", "\"order-1-7\""))
+                .andExpect(status().isNotModified());
+        verify(orderService, never()).getById(anyInt());
+        mockMvc.perform(get("/orders/1").header("If-None-Match", "\"order-1-6\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"order-1-7\""));
+    }
+
+    /**
+     * Тестирование кэша готовых ответов.
+     * Проверяет, что повторный запрос страницы при той же версии данных не обращается к сервису,
+     * а клиент с поддержкой gzip получает сжатый вариант.
+     */
+    @Test
+    @DisplayName("Повторное получение страницы заказов из кэша ответов")
+    void getAllFromResponseCache() throws Exception {
+        OrderDTO orderDTO = new OrderDTO(4, 1, LocalDate.parse("2024-08-12"), "заказ оформлен");
+        when(orderService.etag()).thenReturn("order-1-3");
+        when(orderService.getAllDTO(anyList())).thenReturn(List.of(orderDTO, orderDTO, orderDTO));
+        mockMvc.perform(get("/orders").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"));
+        mockMvc.perform(get("/orders").param("limit", "10").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"));
+        verify(orderService, times(1)).getPage(0, 10);
+    }
+
+    /**
+     * Тестирование выбора двоичного формата ответа.
+     * Проверяет, что по заголовку {@code Accept} страница кодируется в CBOR, а JSON остается форматом по умолчанию.
+     */
+    @Test
+    @DisplayName("Получение страницы заказов в формате CBOR")
+    void getAllCbor() throws Exception {
+        OrderDTO orderDTO = new OrderDTO(4, 1, LocalDate.parse("2024-08-12"), "заказ оформлен");
+        when(orderService.etag()).thenReturn("order-1-3");
+        when(orderService.getAllDTO(anyList())).thenReturn(List.of(orderDTO));
+        mockMvc.perform(get("/orders").param("limit", "10").header("Accept", "application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"));
+        mockMvc.perform(get("/orders").param("limit", "10").header("Accept", "text/html;q=0.9, */*;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"));
+    }
+
+    /**
+     * Тестирование группового получения заказов по идентификаторам.
+     * Проверяет порядок результатов, отметку отсутствующего заказа и ограничение размера запроса.
+     */
+    @Test
+    @DisplayName("Получение заказов по списку идентификаторов")
+    void getByIds() throws Exception {
+        Order order = new Order(4, 1, 2, LocalDate.parse("2024-08-12"), "заказ оформлен");
+        when(orderService.getByIds(anyCollection())).thenReturn(Map.of(4, order));
+        String body = mockMvc.perform(get("/orders").param("ids", "9,4,9"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode items = objectMapper.readTree(body);
+        assertAll(
+                () -> assertThat(items).hasSize(3),
+                () -> assertThat(items.get(0).get("id").asInt()).isEqualTo(9),
+                () -> assertThat(items.get(0).get("error").asText()).isEqualTo("Order with id 9 not found"),
+                () -> assertThat(items.get(1).get("item").get("carId").asInt()).isEqualTo(2),
+                () -> assertThat(items.get(2).get("id").asInt()).isEqualTo(9)
+        );
+        verify(orderService, times(1)).getByIds(Set.of(9, 4));
+        String tooMany = IntStream.rangeClosed(1, Lookup.MAX_IDS + 1).mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        mockMvc.perform(get("/orders").param("ids", tooMany))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
     /**
      * Тестирование создания нового заказа.
      * Проверяет успешное создание заказа и статус ответа.
@@ -122,4 +235,64 @@ class OrderControllerTest {
                         .param("status", "Shipped"))
                 .andExpect(status().isCreated());
     }
-}
\ No newline at end of file
+
+    /**
+     * Тестирование массового изменения статуса по фильтру без значения фильтра.
+     * Проверяет, что запрос отклоняется с кодом 400 и не доходит до сервиса.
+     */
+    @Test
+    @DisplayName("Массовое изменение статуса по фильтру без значения")
+    void changeStatusBulkFilterWithoutParams() throws Exception {
+        mockMvc.perform(put("/orders/bulk-status")
+                        .contentType("application/json")
+                        .content("{\"nameFilter\":\"date\",\"status\":\"Shipped\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/orders/bulk-status")
+                        .contentType("application/json")
+                        .content("{\"nameFilter\":\"status\",\"params\":\" \",\"status\":\"Shipped\"}"))
+                .andExpect(status().isBadRequest());
+        verify(orderService, never()).changeStatus(any(StatusChangeDTO.class));
+    }
+
+    /**
+     * Тестирование прерванной потоковой выгрузки.
+     * Проверяет, что при ошибке после первого заказа массив не закрывается и клиент не получает
+     * синтаксически корректный, но обрезанный ответ.
+     */
+    @Test
+    @DisplayName("Ошибка в середине выгрузки заказов")
+    void exportFailsMidStream() {
+        Order order = new Order(4, 1, 2, LocalDate.parse("2024-08-12"), "заказ оформлен");
+        doAnswer(invocation -> {
+            Consumer<Order> consumer = invocation.getArgument(0);
+            consumer.accept(order);
+            throw new DataAccessResourceFailureException("cursor closed");
+        }).when(orderService).export(any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        OrderController exporting = new OrderController(orderService, objectMapper, responseCache);
+        assertThatThrownBy(() -> exporting.export("json", response))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertAll(
+                () -> assertThat(response.isCommitted()).isTrue(),
+                () -> assertThat(response.getContentAsString()).startsWith("[{").doesNotEndWith("]")
+        );
+    }
+
+    /**
+     * Тестирование выгрузки, прерванной до первого заказа.
+     * Проверяет, что ответ не зафиксирован и не содержит пустого массива, поэтому контейнер может отправить ошибку.
+     */
+    @Test
+    @DisplayName("Ошибка до первого заказа выгрузки")
+    void exportFailsBeforeFirstRow() {
+        doThrow(new CannotGetJdbcConnectionException("no connection")).when(orderService).export(any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        OrderController exporting = new OrderController(orderService, objectMapper, responseCache);
+        assertThatThrownBy(() -> exporting.export("json", response))
+                .isInstanceOf(CannotGetJdbcConnectionException.class);
+        assertAll(
+                () -> assertThat(response.isCommitted()).isFalse(),
+                () -> assertThat(response.getContentAsString()).isEmpty()
+        );
+    }
+}
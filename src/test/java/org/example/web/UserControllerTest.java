@@ -24,6 +24,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
@@ -65,12 +66,14 @@ class UserControllerTest {
         UserDTO userDTO =  new UserDTO("Alexandr", 33, "Moscow", null, null);
         List<UserDTO> users = Collections.singletonList(userDTO);
 
-        when(service.getAll()).thenReturn(Collections.singletonList(new User(1, "admin", "admin", "Alexandr", 33, "Moscow", null, null)));
+        when(service.getPage(0, 1)).thenReturn(Collections.singletonList(new User(1, "admin", "admin", "Alexandr", 33, "Moscow", null, null)));
         when(service.getAllDTO(anyList())).thenReturn(users);
 
-        mockMvc.perform(get("/users"))
+        mockMvc.perform(get("/users")
+                        .param("limit", "1"))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE));
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(header().string("X-Next-Cursor", "1"));
     }
 
     /**
@@ -102,7 +105,7 @@ class UserControllerTest {
         UserDTO userDTO =  new UserDTO("Alexandr", 33, "Moscow", null, null);
         List<UserDTO> users = Collections.singletonList(userDTO);
 
-        when(service.getSortedUsers(anyString())).thenReturn(Collections
+        when(service.getSortedUsers(anyString(), anyInt(), anyInt())).thenReturn(Collections
                 .singletonList(new User(1, "admin", "admin", "Alexandr", 33, "Moscow", null, null)));
         when(service.getAllDTO(anyList())).thenReturn(users);
 
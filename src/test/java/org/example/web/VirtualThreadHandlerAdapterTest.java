@@ -0,0 +1,125 @@
+package org.example.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.WebMvcConfig;
+import org.example.model.Car;
+import org.example.service.CarService;
+import org.example.util.NotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.support.GenericWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DisplayName("Тестирование выполнения обработчиков в исполнителе асинхронных запросов")
+class VirtualThreadHandlerAdapterTest {
+    private static final String THREAD_NAME = "request-handler";
+
+    private final CarService carService = mock(CarService.class);
+    private ExecutorService executor;
+    private GenericWebApplicationContext context;
+    private MockMvc mockMvc;
+
+    /**
+     * Поднимает Spring MVC с {@link WebMvcConfig} и исполнителем асинхронных запросов из именованных потоков,
+     * которые заменяют виртуальные потоки: проект тестируется на Java 17.
+     */
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool(runnable -> new Thread(runnable, THREAD_NAME));
+        CarController controller = new CarController(carService, new ObjectMapper(), new ResponseCache(
+                new ResponseFormats(new ObjectMapper(), new ObjectMapper()), 1 << 20, 64, Duration.ofMinutes(1)));
+        context = new GenericWebApplicationContext(new MockServletContext());
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+        context.registerBean(WebMvcConfig.class);
+        context.registerBean(WebMvcConfigurer.class, () -> new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+            }
+        });
+        context.registerBean(CarController.class, () -> controller);
+        context.registerBean(ExceptionInfoHandler.class);
+        context.refresh();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Проверяет, что метод контроллера выполняется в потоке исполнителя с доступом к текущему запросу,
+     * а ответ записывается после повторной асинхронной передачи.
+     */
+    @Test
+    @DisplayName("Обработчик выполняется в исполнителе")
+    void handlerRunsOnExecutor() throws Exception {
+        AtomicReference<String> thread = new AtomicReference<>();
+        AtomicReference<Object> attributes = new AtomicReference<>();
+        when(carService.getById(1)).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            attributes.set(RequestContextHolder.getRequestAttributes());
+            return new Car(1, "BMW", "M4", 2024, 25000, "new");
+        });
+        MvcResult result = mockMvc.perform(get("/cars/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.brand").value("BMW"));
+        assertThat(thread.get()).isEqualTo(THREAD_NAME);
+        assertThat(attributes.get()).isNotNull();
+    }
+
+    /**
+     * Проверяет, что исключение обработчика в исполнителе попадает в {@code @ExceptionHandler}.
+     */
+    @Test
+    @DisplayName("Исключение обработчика в исполнителе")
+    void handlerExceptionIsResolved() throws Exception {
+        when(carService.getById(2)).thenThrow(new NotFoundException("Car with id 2 not found"));
+        MvcResult result = mockMvc.perform(get("/cars/2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Car with id 2 not found"));
+    }
+
+    /**
+     * Проверяет, что потоковая выгрузка, которая пишет прямо в ответ, выполняется в потоке запроса.
+     */
+    @Test
+    @DisplayName("Потоковая выгрузка выполняется синхронно")
+    void voidHandlerRunsInline() throws Exception {
+        mockMvc.perform(get("/cars/export"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+}